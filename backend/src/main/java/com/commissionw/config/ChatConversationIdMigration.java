@@ -0,0 +1,49 @@
+package com.commissionw.config;
+
+import com.commissionw.model.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in conversationId on chat messages stored before the field existed.
+ * Runs as a single server-side pipeline update, so no message is read into
+ * the application; once every message has the field it is a no-op.
+ */
+@Component
+public class ChatConversationIdMigration {
+    private static final Logger logger = LoggerFactory.getLogger(ChatConversationIdMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void migrate() {
+        Query missing = new Query(new Criteria().andOperator(
+                Criteria.where("conversationId").exists(false),
+                Criteria.where("senderId").type(2),
+                Criteria.where("receiverId").type(2)));
+
+        // Same ordering rule as ChatService.conversationId: smaller id first
+        AggregationUpdate setConversationId = AggregationUpdate.update()
+                .set("conversationId")
+                .toValue(ConditionalOperators
+                        .when(ComparisonOperators.valueOf("senderId").lessThan("receiverId"))
+                        .then(StringOperators.valueOf("senderId").concat("_").concatValueOf("receiverId"))
+                        .otherwise(StringOperators.valueOf("receiverId").concat("_").concatValueOf("senderId")));
+
+        long updated = mongoTemplate.updateMulti(missing, setConversationId, ChatMessage.class).getModifiedCount();
+        if (updated > 0) {
+            logger.info("Backfilled conversationId on {} chat messages", updated);
+        }
+    }
+}
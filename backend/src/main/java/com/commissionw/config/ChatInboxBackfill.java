@@ -0,0 +1,63 @@
+package com.commissionw.config;
+
+import com.commissionw.model.ChatConversation;
+import com.commissionw.model.ChatMessage;
+import com.commissionw.service.ChatInboxService;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the conversations collection from existing chat messages the first
+ * time the application starts with it. The grouping and the write both run
+ * on the server ($group + $merge). Unread counters start at zero because
+ * read state was never recorded before.
+ */
+@Component
+@DependsOn("chatConversationIdMigration")
+public class ChatInboxBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(ChatInboxBackfill.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void backfill() {
+        if (mongoTemplate.estimatedCount(ChatConversation.class) > 0
+                || mongoTemplate.estimatedCount(ChatMessage.class) == 0) {
+            return;
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("conversationId").exists(true)),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "timestamp", "_id")),
+                Aggregation.group("conversationId")
+                        .first("content").as("content")
+                        .first("senderId").as("lastSenderId")
+                        .first("timestamp").as("lastMessageAt"),
+                Aggregation.project("lastSenderId", "lastMessageAt")
+                        .and(StringOperators.valueOf("_id").split("_")).as("participants")
+                        .and(StringOperators.valueOf("content").substringCP(0, ChatInboxService.PREVIEW_LENGTH))
+                        .as("lastMessagePreview")
+                        .and(ctx -> new Document("$literal", new Document())).as("unread"),
+                // Keep any row a concurrent send created meanwhile
+                MergeOperation.builder()
+                        .intoCollection("conversations")
+                        .whenMatched(MergeOperation.WhenDocumentsMatch.keepExistingDocument())
+                        .build());
+
+        mongoTemplate.aggregate(aggregation, ChatMessage.class, ChatConversation.class);
+        logger.info("Built {} conversation summaries from chat history",
+                mongoTemplate.estimatedCount(ChatConversation.class));
+    }
+}
@@ -0,0 +1,138 @@
+package com.commissionw.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the bytes of small, frequently requested images (thumbnails,
+ * placeholders) in an LRU so they are served without touching the disk.
+ * Uploaded files are content-addressed and never change in place, but the
+ * file's modification time is still part of the key to be safe.
+ */
+public class HotImageResourceResolver implements ResourceResolver {
+
+    private final long maxFileBytes;
+    private final long maxTotalBytes;
+
+    private final LinkedHashMap<String, CachedImage> cache = new LinkedHashMap<>(128, 0.75f, true);
+    private long totalBytes;
+
+    public HotImageResourceResolver(long maxFileBytes, long maxTotalBytes) {
+        this.maxFileBytes = maxFileBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    @Override
+    @Nullable
+    public Resource resolveResource(@Nullable HttpServletRequest request, String requestPath,
+            List<? extends Resource> locations, ResourceResolverChain chain) {
+        if (isHidden(requestPath)) {
+            // Temp files of in-progress uploads live in the same directory
+            return null;
+        }
+
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || resource instanceof HttpResource || resource instanceof CachedImage) {
+            // Precompressed variants carry their own headers; leave them to the chain
+            return resource;
+        }
+
+        try {
+            long length = resource.contentLength();
+            if (length > maxFileBytes) {
+                return resource;
+            }
+            long lastModified = resource.lastModified();
+            String key = requestPath;
+
+            synchronized (cache) {
+                CachedImage cached = cache.get(key);
+                if (cached != null && cached.lastModified() == lastModified) {
+                    return cached;
+                }
+            }
+
+            byte[] bytes;
+            try (InputStream in = resource.getInputStream()) {
+                bytes = StreamUtils.copyToByteArray(in);
+            }
+            CachedImage image = new CachedImage(bytes, resource.getFilename(), lastModified);
+            put(key, image);
+            return image;
+        } catch (IOException e) {
+            return resource;
+        }
+    }
+
+    @Override
+    @Nullable
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+
+    private void put(String key, CachedImage image) {
+        synchronized (cache) {
+            CachedImage previous = cache.put(key, image);
+            if (previous != null) {
+                totalBytes -= previous.contentLength();
+            }
+            totalBytes += image.contentLength();
+
+            Iterator<Map.Entry<String, CachedImage>> eldest = cache.entrySet().iterator();
+            while (totalBytes > maxTotalBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().contentLength();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static boolean isHidden(String requestPath) {
+        int slash = requestPath.lastIndexOf('/');
+        return requestPath.startsWith(".", slash + 1);
+    }
+
+    static final class CachedImage extends ByteArrayResource {
+        private final String filename;
+        private final long lastModified;
+
+        CachedImage(byte[] bytes, String filename, long lastModified) {
+            super(bytes);
+            this.filename = filename;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
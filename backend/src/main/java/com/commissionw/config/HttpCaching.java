@@ -0,0 +1,43 @@
+package com.commissionw.config;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET helpers. The body supplier is only invoked when the
+ * client's copy is stale, so a matching If-None-Match costs neither a query
+ * nor serialization.
+ */
+public final class HttpCaching {
+
+    // Clients may keep a copy but must revalidate it before every use
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    private HttpCaching() {
+    }
+
+    public static <T> ResponseEntity<T> conditional(WebRequest request, String etag, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            // checkNotModified has already set the ETag header
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body.get());
+    }
+
+    public static <T> ResponseEntity<T> conditional(WebRequest request, String etag, MediaType contentType,
+            Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).contentType(contentType).body(body.get());
+    }
+
+    public static String versionTag(String prefix, String id, Long version) {
+        return "\"" + prefix + "-" + id + "-" + (version == null ? 0 : version) + "\"";
+    }
+}
@@ -0,0 +1,236 @@
+package com.commissionw.config;
+
+import com.commissionw.model.ChatConversation;
+import com.commissionw.model.ChatMessage;
+import com.commissionw.model.Order;
+import com.commissionw.model.Product;
+import com.commissionw.model.SalesRollup;
+import com.commissionw.model.User;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the index plan declared on the models (@Indexed, @CompoundIndex,
+ * including partial and unique indexes) at startup, before the web server
+ * takes traffic. Creating an index that already exists with the same
+ * options is a no-op, so this runs on every start; indexes the plan has
+ * replaced are dropped.
+ *
+ * <p>Once the application is ready, every repository query shape in
+ * {@link #PROBES} is explained against the live collections. A winning plan
+ * containing a COLLSCAN is logged, or fails startup when
+ * {@code commissionw.app.indexes.onCollscan=fail}. A new query method
+ * should get a probe here along with its index.
+ */
+@Component
+public class IndexPlan {
+    private static final Logger logger = LoggerFactory.getLogger(IndexPlan.class);
+
+    // Product: superseded by the partial reservedBy_pending / reservedUntil_pending indexes.
+    // ChatMessage: chat reads go by conversationId, nothing queries by sender or receiver.
+    private static final Map<Class<?>, List<String>> RETIRED = Map.of(
+            Product.class, List.of("reservedBy", "reservedUntil"),
+            ChatMessage.class, List.of("senderId", "receiverId"));
+
+    private static final Date PROBE_DATE = new Date(0);
+
+    private static final List<Probe> PROBES = List.of(
+            new Probe("UserRepository.findByUsername", User.class,
+                    new Document("username", "probe"), null),
+            new Probe("UserRepository.findByEmail", User.class,
+                    new Document("email", "probe"), null),
+            new Probe("TokenVersionService revoked users", User.class,
+                    new Document("tokenVersion", new Document("$gt", 0)), null),
+            new Probe("OrderRepository.findByUserId", Order.class,
+                    new Document("userId", "probe"), null),
+            new Probe("OrderRepository.findByStatus", Order.class,
+                    new Document("status", "pending"), null),
+            new Probe("OrderRepository.findPage", Order.class,
+                    new Document("paymentStatus", "paid"), new Document("createdAt", -1).append("_id", -1)),
+            new Probe("SalesRollupService order range", Order.class,
+                    new Document("createdAt", new Document("$gte", PROBE_DATE).append("$lt", PROBE_DATE)), null),
+            new Probe("ProductRepository.findByCategory", Product.class,
+                    new Document("category", "probe"), null),
+            new Probe("ProductRepository.findPage category", Product.class,
+                    new Document("category", "probe"), new Document("_id", -1)),
+            new Probe("ProductRepository.findPage price", Product.class,
+                    new Document(), new Document("price", 1).append("_id", 1)),
+            new Probe("ProductRepository.findPage title", Product.class,
+                    new Document(), new Document("title", 1).append("_id", 1)),
+            new Probe("ProductReservationService expired", Product.class,
+                    new Document("status", "pending").append("reservedUntil", new Document("$lt", PROBE_DATE)), null),
+            new Probe("ProductReservationService by order", Product.class,
+                    new Document("reservedBy", "probe").append("status", "pending"), null),
+            new Probe("ImageDerivativeService by image", Product.class,
+                    new Document("imageUrl", "probe"), null),
+            new Probe("ChatRepository.findLatest", ChatMessage.class,
+                    new Document("conversationId", "probe"), new Document("timestamp", -1).append("_id", -1)),
+            new Probe("ChatInboxService.getInbox", ChatConversation.class,
+                    new Document("participants", "probe"), new Document("lastMessageAt", -1)),
+            new Probe("SalesRollupService.getTop", SalesRollup.class,
+                    new Document("type", SalesRollup.ARTIST), new Document("revenue", -1)));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // log: report COLLSCANs as warnings; fail: refuse to start; off: skip verification
+    @Value("${commissionw.app.indexes.onCollscan:log}")
+    private String onCollscan;
+
+    private volatile List<Map<String, Object>> lastVerification = List.of();
+
+    @PostConstruct
+    void ensureIndexes() {
+        var mappingContext = mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            dropRetired(entity.getType(), indexOps);
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    // e.g. duplicates already stored under a unique index
+                    throw new IllegalStateException("Cannot create index " + index.getIndexOptions().get("name")
+                            + " on " + entity.getCollection() + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        if ("off".equalsIgnoreCase(onCollscan)) {
+            return;
+        }
+        List<String> scans = new ArrayList<>();
+        for (Map<String, Object> check : verify()) {
+            if (Boolean.TRUE.equals(check.get("collscan"))) {
+                scans.add(check.get("query") + " on " + check.get("collection"));
+            }
+        }
+        if (scans.isEmpty()) {
+            logger.info("Index plan verified: all {} query shapes are index-backed", PROBES.size());
+            return;
+        }
+        if ("fail".equalsIgnoreCase(onCollscan)) {
+            throw new IllegalStateException("Queries without a usable index: " + scans);
+        }
+        scans.forEach(scan -> logger.warn("Query would scan the whole collection: {}", scan));
+    }
+
+    /**
+     * Explains every probe and returns, per query shape, the winning plan's
+     * stages and the indexes it uses.
+     */
+    public List<Map<String, Object>> verify() {
+        List<Map<String, Object>> checks = new ArrayList<>();
+        for (Probe probe : PROBES) {
+            String collection = mongoTemplate.getCollectionName(probe.entity());
+            Document find = new Document("find", collection).append("filter", probe.filter());
+            if (probe.sort() != null) {
+                find.append("sort", probe.sort());
+            }
+            Document explain = mongoTemplate.getDb()
+                    .runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+            Object winningPlan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+
+            Set<String> stages = new LinkedHashSet<>();
+            Set<String> indexes = new LinkedHashSet<>();
+            collectPlan(winningPlan, stages, indexes);
+
+            Map<String, Object> check = new LinkedHashMap<>();
+            check.put("query", probe.query());
+            check.put("collection", collection);
+            check.put("stages", stages);
+            check.put("indexes", indexes);
+            check.put("collscan", stages.contains("COLLSCAN"));
+            checks.add(check);
+        }
+        lastVerification = checks;
+        return checks;
+    }
+
+    /**
+     * Index usage per collection from $indexStats, plus the last
+     * verification result. Indexes with zero ops since the server started
+     * are candidates for removal.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        Set<String> collections = new LinkedHashSet<>();
+        PROBES.forEach(probe -> collections.add(mongoTemplate.getCollectionName(probe.entity())));
+        for (String collection : collections) {
+            List<Map<String, Object>> indexes = new ArrayList<>();
+            for (Document stats : mongoTemplate.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                Document accesses = (Document) stats.get("accesses");
+                Map<String, Object> index = new LinkedHashMap<>();
+                index.put("name", stats.getString("name"));
+                index.put("ops", accesses != null ? accesses.get("ops") : null);
+                index.put("since", accesses != null ? accesses.get("since") : null);
+                indexes.add(index);
+            }
+            usage.put(collection, indexes);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("queries", lastVerification.isEmpty() ? verify() : lastVerification);
+        report.put("indexUsage", usage);
+        return report;
+    }
+
+    private void dropRetired(Class<?> type, IndexOperations indexOps) {
+        List<String> retired = RETIRED.getOrDefault(type, List.of());
+        if (retired.isEmpty()) {
+            return;
+        }
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (retired.contains(info.getName())) {
+                indexOps.dropIndex(info.getName());
+                logger.info("Dropped retired index {} on {}", info.getName(), mongoTemplate.getCollectionName(type));
+            }
+        }
+    }
+
+    // Walks classic (inputStage/inputStages) and SBE (queryPlan) plan trees alike
+    private static void collectPlan(Object node, Set<String> stages, Set<String> indexes) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            if (document.get("indexName") instanceof String indexName) {
+                indexes.add(indexName);
+            }
+            document.values().forEach(value -> collectPlan(value, stages, indexes));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectPlan(value, stages, indexes));
+        }
+    }
+
+    private record Probe(String query, Class<?> entity, Document filter, Document sort) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.commissionw.config;
+
+import com.commissionw.service.ImageStorageService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Serves large uploaded images with Tomcat's sendfile, so the kernel copies
+ * the file straight to the socket without passing it through the JVM.
+ * Only plain full-file GETs are handled here; range requests, small files
+ * (kept in the hot cache) and connectors without sendfile fall through to
+ * the regular resource handler configured in {@link WebMvcConfig}.
+ */
+@Component
+public class SendfileImageFilter extends OncePerRequestFilter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final Path baseDir = Paths.get(ImageStorageService.UPLOAD_DIR).toAbsolutePath().normalize();
+
+    @Value("${commissionw.app.images.hotFileMaxBytes:65536}")
+    private long hotFileMaxBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(ImageStorageService.URL_PREFIX)
+                || request.getHeader(HttpHeaders.RANGE) != null
+                || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String filename = request.getRequestURI().substring(ImageStorageService.URL_PREFIX.length());
+        Path file = baseDir.resolve(filename).normalize();
+        if (filename.isEmpty() || filename.startsWith(".") || filename.contains("/")
+                || !file.startsWith(baseDir) || !Files.isRegularFile(file)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long length = Files.size(file);
+        if (length <= hotFileMaxBytes) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, WebMvcConfig.IMMUTABLE.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(lastModified)) {
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(filename);
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        request.setAttribute(SENDFILE_FILENAME, file.toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, length);
+    }
+}
@@ -0,0 +1,44 @@
+package com.commissionw.config;
+
+import com.commissionw.model.HomeSettings;
+import com.commissionw.model.Order;
+import com.commissionw.model.Product;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Documents written before an entity gained its @Version field have no
+ * version; Spring Data would treat them as new on save and try to insert
+ * them again. Give them version 0 once at startup.
+ */
+@Component
+public class VersionFieldBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(VersionFieldBackfill.class);
+
+    private static final List<Class<?>> VERSIONED_ENTITIES = List.of(Product.class, HomeSettings.class, Order.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void backfill() {
+        for (Class<?> entity : VERSIONED_ENTITIES) {
+            long updated = mongoTemplate.updateMulti(
+                    new Query(Criteria.where("version").exists(false)),
+                    new Update().set("version", 0L),
+                    entity).getModifiedCount();
+            if (updated > 0) {
+                logger.info("Backfilled version on {} {} documents", updated, entity.getSimpleName());
+            }
+        }
+    }
+}
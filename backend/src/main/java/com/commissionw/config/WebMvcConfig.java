@@ -1,16 +1,64 @@
 package com.commissionw.config;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    // Upload names are content hashes, so a URL's bytes never change
+    public static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    @Value("${commissionw.app.images.hotFileMaxBytes:65536}")
+    private long hotFileMaxBytes;
+
+    @Value("${commissionw.app.images.hotCacheBytes:33554432}")
+    private long hotCacheBytes;
+
+    @Value("${commissionw.app.export.asyncTimeoutMs:1800000}")
+    private long exportTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Streamed exports (GET .../export) may run for many minutes; every
+        // other async request keeps spring.mvc.async.request-timeout
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+                if (request instanceof AsyncWebRequest asyncRequest && servletRequest != null
+                        && servletRequest.getRequestURI().endsWith("/export")) {
+                    asyncRequest.setTimeout(exportTimeoutMs);
+                }
+            }
+        });
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve uploaded images from uploads/images/ directory
+        // Serve uploaded images from uploads/images/ directory.
+        // Range requests are handled by the resource handler itself; large
+        // full-file GETs are short-circuited by SendfileImageFilter.
         registry.addResourceHandler("/uploads/images/**")
-                .addResourceLocations("file:uploads/images/");
+                .addResourceLocations("file:uploads/images/")
+                .setCacheControl(IMMUTABLE)
+                // No CachingResourceResolver: it would pin every resolved image for the life of
+                // the process; HotImageResourceResolver is the only, bounded, cache in the chain
+                .resourceChain(false)
+                .addResolver(new HotImageResourceResolver(hotFileMaxBytes, hotCacheBytes))
+                // Serves foo.svg.gz / foo.svg.br when present and accepted
+                .addResolver(new EncodedResourceResolver());
     }
 }
@@ -8,18 +8,25 @@ import com.commissionw.payload.response.JwtResponse;
 import com.commissionw.payload.response.MessageResponse;
 import com.commissionw.repository.UserRepository;
 import com.commissionw.security.jwt.JwtUtils;
+import com.commissionw.security.password.BoundedPasswordEncoder;
 import com.commissionw.security.services.UserDetailsImpl;
+import com.commissionw.service.UsernameAvailability;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -27,6 +34,8 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
+    private static final String USERNAME_TAKEN = "Error: Username is already taken!";
+
     @Autowired
     AuthenticationManager authenticationManager;
 
@@ -34,10 +43,13 @@ public class AuthController {
     UserRepository userRepository;
 
     @Autowired
-    PasswordEncoder encoder;
+    JwtUtils jwtUtils;
 
     @Autowired
-    JwtUtils jwtUtils;
+    BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    UsernameAvailability usernameAvailability;
 
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
@@ -60,24 +72,22 @@ public class AuthController {
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@RequestBody SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Username is already taken!"));
+    public ResponseEntity<?> registerUser(@RequestBody SignupRequest signUpRequest, HttpServletRequest request) {
+        if (!usernameAvailability.tryAdmit(request.getRemoteAddr())) {
+            return tooManyRequests();
         }
-
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
+        // Known-taken names are turned away before paying for a hash
+        if (usernameAvailability.isKnownTaken(signUpRequest.getUsername())) {
             return ResponseEntity
                     .badRequest()
-                    .body(new MessageResponse("Error: Email is already in use!"));
+                    .body(new MessageResponse(USERNAME_TAKEN));
         }
 
         // Create new user's account
         User user = new User();
         user.setUsername(signUpRequest.getUsername());
         user.setEmail(signUpRequest.getEmail());
-        user.setPassword(encoder.encode(signUpRequest.getPassword()));
+        user.setPassword(passwordEncoder.encode(signUpRequest.getPassword()));
         user.setPhone(signUpRequest.getPhone());
 
         Set<String> strRoles = signUpRequest.getRoles();
@@ -98,8 +108,49 @@ public class AuthController {
         }
 
         user.setRoles(roles);
-        userRepository.save(user);
+
+        // One insert: the unique indexes on username and email decide races
+        try {
+            userRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            String message = e.getMessage() != null ? e.getMessage() : "";
+            if (message.contains(User.EMAIL_INDEX)) {
+                return ResponseEntity
+                        .badRequest()
+                        .body(new MessageResponse("Error: Email is already in use!"));
+            }
+            usernameAvailability.markTaken(user.getUsername());
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse(USERNAME_TAKEN));
+        }
+        usernameAvailability.markTaken(user.getUsername());
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
+
+    // Live validation for the signup form
+    @GetMapping("/username-available")
+    public ResponseEntity<?> isUsernameAvailable(@RequestParam String username, HttpServletRequest request) {
+        if (!usernameAvailability.tryAdmit(request.getRemoteAddr())) {
+            return tooManyRequests();
+        }
+        if (username.isBlank()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is required!"));
+        }
+        return ResponseEntity.ok(Map.of("username", username, "available", usernameAvailability.isAvailable(username)));
+    }
+
+    // Password-hashing pool metrics: queue depth, rejections, timeouts, latency
+    @GetMapping("/hashing/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getHashingStats() {
+        return passwordEncoder.stats();
+    }
+
+    private ResponseEntity<MessageResponse> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(usernameAvailability.retryAfterSeconds()))
+                .body(new MessageResponse("Error: Too many signup attempts, please retry later"));
+    }
 }
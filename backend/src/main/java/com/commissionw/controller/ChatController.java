@@ -1,14 +1,27 @@
 package com.commissionw.controller;
 
 import com.commissionw.model.ChatMessage;
+import com.commissionw.payload.response.ConversationSummary;
+import com.commissionw.payload.response.MessageResponse;
+import com.commissionw.service.ChatInboxService;
+import com.commissionw.service.ChatPushService;
 import com.commissionw.service.ChatService;
 import com.commissionw.security.services.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -17,18 +30,78 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private ChatPushService chatPushService;
+
+    @Autowired
+    private ChatInboxService chatInboxService;
+
+    // Server-Sent Events stream of incoming messages. EventSource cannot send
+    // headers, so the JWT may be passed as ?access_token= on this path only.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public SseEmitter stream(Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        return chatPushService.subscribe(userDetails.getId());
+    }
+
     @PostMapping("/send")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ChatMessage sendMessage(@RequestBody ChatMessage message, Authentication authentication) {
+    public CompletableFuture<ResponseEntity<?>> sendMessage(@RequestBody ChatMessage message,
+            Authentication authentication) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         message.setSenderId(userDetails.getId());
-        return chatService.sendMessage(message);
+        return chatService.sendMessage(message)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        // Write buffer full: tell the client to back off and retry
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(new MessageResponse("Error: Chat is busy, please retry"));
+                    }
+                    return ResponseEntity.internalServerError()
+                            .body(new MessageResponse("Error: Message could not be sent"));
+                });
+    }
+
+    // Conversations with last message and unread count, most recent first
+    @GetMapping("/inbox")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public List<ConversationSummary> getInbox(
+            @RequestParam(defaultValue = "" + ChatInboxService.DEFAULT_INBOX_SIZE) int limit,
+            Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        return chatInboxService.getInbox(userDetails.getId(), limit);
+    }
+
+    @PutMapping("/conversation/{partnerId}/read")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> markRead(@PathVariable String partnerId, Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        chatInboxService.markRead(userDetails.getId(), partnerId);
+        return ResponseEntity.ok(new MessageResponse("Conversation marked as read"));
+    }
+
+    @GetMapping("/write-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getWriteStats() {
+        return chatService.getWriteStats();
     }
 
+    // Most recent messages, oldest first; pass nextCursor as ?before= to scroll back
     @GetMapping("/conversation/{partnerId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public List<ChatMessage> getConversation(@PathVariable String partnerId, Authentication authentication) {
+    public ResponseEntity<?> getConversation(@PathVariable String partnerId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "" + ChatService.DEFAULT_PAGE_SIZE) int limit,
+            Authentication authentication) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        return chatService.getConversation(userDetails.getId(), partnerId);
+        try {
+            return ResponseEntity.ok(chatService.getConversation(userDetails.getId(), partnerId, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
     }
 }
@@ -1,25 +1,27 @@
 package com.commissionw.controller;
 
+import com.commissionw.service.ImageDerivativeService;
+import com.commissionw.service.ImageStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/upload")
 public class FileUploadController {
 
-    private static final String UPLOAD_DIR = "uploads/images/";
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
 
     @PostMapping("/image")
     public ResponseEntity<?> uploadImage(@RequestParam("file") MultipartFile file) {
@@ -28,29 +30,16 @@ public class FileUploadController {
         }
 
         try {
-            // Create upload directory if not exists
-            File uploadDir = new File(UPLOAD_DIR);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String filename = UUID.randomUUID().toString() + extension;
-
-            // Save file
-            Path filePath = Paths.get(UPLOAD_DIR + filename);
-            Files.write(filePath, file.getBytes());
+            // Streamed to disk and named by content hash; identical files share one URL
+            ImageStorageService.StoredImage stored = imageStorageService.store(file);
+            // Thumbnails and responsive widths are produced in the background
+            imageDerivativeService.submit(stored.url());
 
             // Return URL
-            String imageUrl = "/uploads/images/" + filename;
-            Map<String, String> response = new HashMap<>();
-            response.put("url", imageUrl);
-            response.put("message", "File uploaded successfully");
+            Map<String, Object> response = new HashMap<>();
+            response.put("url", stored.url());
+            response.put("duplicate", stored.duplicate());
+            response.put("message", stored.duplicate() ? "File already uploaded" : "File uploaded successfully");
 
             return ResponseEntity.ok(response);
 
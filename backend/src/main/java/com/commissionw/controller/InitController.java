@@ -4,8 +4,8 @@ import com.commissionw.model.Product;
 import com.commissionw.model.Role;
 import com.commissionw.model.User;
 import com.commissionw.payload.response.MessageResponse;
-import com.commissionw.repository.ProductRepository;
 import com.commissionw.repository.UserRepository;
+import com.commissionw.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,7 +23,7 @@ public class InitController {
     UserRepository userRepository;
 
     @Autowired
-    ProductRepository productRepository;
+    ProductService productService;
 
     @Autowired
     PasswordEncoder encoder;
@@ -50,7 +50,7 @@ public class InitController {
 
         userRepository.save(admin);
 
-        // Create Sample Products
+        // Create Sample Products (through the service, so search, caches and ETags see them)
         Product p1 = new Product();
         p1.setTitle("Sunset over Lake");
         p1.setArtist("Huy Arthur");
@@ -60,7 +60,7 @@ public class InitController {
         p1.setCategory("Landscape");
         p1.setImageUrl("https://images.unsplash.com/photo-1506905925346-21bda4d32df4?w=800");
         p1.setStatus("available");
-        productRepository.save(p1);
+        productService.createProduct(p1);
 
         Product p2 = new Product();
         p2.setTitle("Abstract Dreams");
@@ -70,7 +70,7 @@ public class InitController {
         p2.setCategory("Abstract");
         p2.setImageUrl("https://images.unsplash.com/photo-1541961017774-22349e4a1262?w=800");
         p2.setStatus("available");
-        productRepository.save(p2);
+        productService.createProduct(p2);
 
         Product p3 = new Product();
         p3.setTitle("Urban Solitude");
@@ -80,7 +80,7 @@ public class InitController {
         p3.setCategory("Modern");
         p3.setImageUrl("https://images.unsplash.com/photo-1460661419201-fd4cecdf8a8b?w=800");
         p3.setStatus("available");
-        productRepository.save(p3);
+        productService.createProduct(p3);
 
         Product p4 = new Product();
         p4.setTitle("Spring Blossoms");
@@ -90,7 +90,7 @@ public class InitController {
         p4.setCategory("Landscape");
         p4.setImageUrl("https://images.unsplash.com/photo-1490750967868-88aa4486c946?w=800");
         p4.setStatus("available");
-        productRepository.save(p4);
+        productService.createProduct(p4);
 
         Product p5 = new Product();
         p5.setTitle("Ocean Depths");
@@ -100,7 +100,7 @@ public class InitController {
         p5.setCategory("Landscape");
         p5.setImageUrl("https://images.unsplash.com/photo-1559827260-dc66d52bef19?w=800");
         p5.setStatus("available");
-        productRepository.save(p5);
+        productService.createProduct(p5);
 
         Product p6 = new Product();
         p6.setTitle("Gentle Portrait");
@@ -110,7 +110,7 @@ public class InitController {
         p6.setCategory("Portrait");
         p6.setImageUrl("https://images.unsplash.com/photo-1579783902614-a3fb3927b6a5?w=800");
         p6.setStatus("sold");
-        productRepository.save(p6);
+        productService.createProduct(p6);
 
         return ResponseEntity.ok(new MessageResponse(
                 "Database initialized successfully!\n" +
@@ -1,16 +1,29 @@
 package com.commissionw.controller;
 
 import com.commissionw.model.Order;
+import com.commissionw.payload.request.OrderFilter;
 import com.commissionw.payload.response.MessageResponse;
 import com.commissionw.repository.OrderRepository;
 import com.commissionw.security.services.UserDetailsImpl;
+import com.commissionw.service.BulkImportService;
+import com.commissionw.service.ExportFormats;
+import com.commissionw.service.ExportService;
+import com.commissionw.service.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +35,15 @@ public class OrderController {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    ExportService exportService;
+
     // Create new order
     @PostMapping
     public ResponseEntity<?> createOrder(@RequestBody Order order, Authentication authentication) {
@@ -33,11 +55,11 @@ public class OrderController {
             order.setUsername(userDetails.getUsername());
             order.setStatus("pending");
             order.setPaymentStatus("pending");
-            order.setCreatedAt(LocalDateTime.now());
-            order.setUpdatedAt(LocalDateTime.now());
 
-            Order savedOrder = orderRepository.save(order);
+            Order savedOrder = orderService.placeOrder(order);
             return ResponseEntity.ok(savedOrder);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new MessageResponse(e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error creating order: " + e.getMessage()));
@@ -59,6 +81,58 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Keyset-paginated order summaries for the admin dashboard, newest first
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getOrderPage(@RequestParam(required = false) String status,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) String paymentMethod,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int limit) {
+        OrderFilter filter = filterOf(status, paymentStatus, paymentMethod, from, to);
+        try {
+            return ResponseEntity.ok(orderService.getOrderPage(filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // Same as /page, restricted to the authenticated user's orders
+    @GetMapping("/my-orders/page")
+    public ResponseEntity<?> getMyOrderPage(@RequestParam(required = false) String status,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int limit,
+            Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        OrderFilter filter = filterOf(status, paymentStatus, null, from, to);
+        filter.setUserId(userDetails.getId());
+        try {
+            return ResponseEntity.ok(orderService.getOrderPage(filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // Accounting export (Admin only): csv or ndjson, streamed from a cursor
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        boolean csv = !"ndjson".equalsIgnoreCase(format);
+        OrderFilter filter = filterOf(status, null, null, from, to);
+        return ResponseEntity.ok()
+                .contentType(csv ? ExportFormats.CSV : ExportFormats.NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ExportFormats.attachment("orders", csv))
+                .body(exportService.exportOrders(filter, csv));
+    }
+
     // Get order by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getOrderById(@PathVariable String id, Authentication authentication) {
@@ -81,58 +155,75 @@ public class OrderController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Update order status (Admin only)
+    // Update order status (Admin only). "version" is required (428 without
+    // it); a stale version or a transition that is not allowed returns 409.
+    // Optional "expectedStatus" adds a further guard.
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> updateOrderStatus(@PathVariable String id, @RequestBody Map<String, String> payload) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    order.setStatus(payload.get("status"));
-                    order.setUpdatedAt(LocalDateTime.now());
-                    orderRepository.save(order);
-                    return ResponseEntity.ok(order);
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return ResponseEntity.ok(orderService.updateOrderStatus(id, payload.get("status"),
+                    payload.get("expectedStatus"), versionOf(payload)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new MessageResponse(e.getReason()));
+        }
     }
 
-    // Update payment status (Admin only or payment gateway callback)
+    // Update payment status (Admin only or payment gateway callback).
+    // "version" required and optional "expectedPaymentStatus" as above.
     @PutMapping("/{id}/payment")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> updatePaymentStatus(@PathVariable String id, @RequestBody Map<String, String> payload) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    order.setPaymentStatus(payload.get("paymentStatus"));
-                    order.setUpdatedAt(LocalDateTime.now());
-                    orderRepository.save(order);
-                    return ResponseEntity.ok(order);
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return ResponseEntity.ok(orderService.updatePaymentStatus(id, payload.get("paymentStatus"),
+                    payload.get("expectedPaymentStatus"), versionOf(payload)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new MessageResponse(e.getReason()));
+        }
+    }
+
+    // Bulk status changes (Admin only): NDJSON lines of {"id", "status",
+    // "version", "expectedStatus"?}; one NDJSON result per line in return
+    @PutMapping(value = "/bulk/status", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void bulkUpdateOrderStatus(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        bulkImportService.updateOrderStatuses(request.getInputStream(), response.getOutputStream());
     }
 
     // Cancel order
     @PutMapping("/{id}/cancel")
     public ResponseEntity<?> cancelOrder(@PathVariable String id, Authentication authentication) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-
-                    // Check if user owns this order
-                    if (!order.getUserId().equals(userDetails.getId())) {
-                        return ResponseEntity.status(403)
-                                .body(new MessageResponse("Access denied"));
-                    }
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(orderService.cancelOrder(id, userDetails.getId()));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new MessageResponse(e.getReason()));
+        }
+    }
 
-                    // Only allow cancelling pending orders
-                    if (!order.getStatus().equals("pending")) {
-                        return ResponseEntity.badRequest()
-                                .body(new MessageResponse("Cannot cancel order with status: " + order.getStatus()));
-                    }
+    private static Long versionOf(Map<String, String> payload) {
+        String version = payload.get("version");
+        if (version == null || version.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid version: " + version);
+        }
+    }
 
-                    order.setStatus("cancelled");
-                    order.setUpdatedAt(LocalDateTime.now());
-                    orderRepository.save(order);
-                    return ResponseEntity.ok(order);
-                })
-                .orElse(ResponseEntity.notFound().build());
+    // Dates are whole days: "to" includes every order placed on that day
+    private static OrderFilter filterOf(String status, String paymentStatus, String paymentMethod,
+            LocalDate from, LocalDate to) {
+        OrderFilter filter = new OrderFilter();
+        filter.setStatus(status != null && !status.isEmpty() ? status : null);
+        filter.setPaymentStatus(paymentStatus != null && !paymentStatus.isEmpty() ? paymentStatus : null);
+        filter.setPaymentMethod(paymentMethod != null && !paymentMethod.isEmpty() ? paymentMethod : null);
+        filter.setFrom(from != null ? from.atStartOfDay() : null);
+        filter.setTo(to != null ? to.plusDays(1).atStartOfDay() : null);
+        return filter;
     }
 }
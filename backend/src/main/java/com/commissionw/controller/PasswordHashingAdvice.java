@@ -0,0 +1,25 @@
+package com.commissionw.controller;
+
+import com.commissionw.payload.response.MessageResponse;
+import com.commissionw.security.password.PasswordHashingBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers every endpoint that hashes or verifies a password (sign-in,
+ * sign-up, password change, admin setup) with 503 and Retry-After when the
+ * hashing pool sheds the request.
+ */
+@RestControllerAdvice
+public class PasswordHashingAdvice {
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<MessageResponse> handleHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+}
@@ -1,13 +1,32 @@
 package com.commissionw.controller;
 
+import com.commissionw.config.HttpCaching;
 import com.commissionw.model.Product;
+import com.commissionw.payload.request.ProductFacetQuery;
+import com.commissionw.payload.response.ProductFacets;
+import com.commissionw.payload.response.MessageResponse;
+import com.commissionw.repository.ProductSort;
+import com.commissionw.service.BulkImportService;
+import com.commissionw.service.ExportFormats;
+import com.commissionw.service.ExportService;
 import com.commissionw.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -17,22 +36,94 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private ExportService exportService;
+
     @GetMapping
-    public List<Product> getAllProducts(@RequestParam(required = false) String category,
-            @RequestParam(required = false) String search) {
-        if (category != null && !category.equals("All")) {
-            return productService.getByCategory(category);
-        }
-        if (search != null && !search.isEmpty()) {
-            return productService.searchProducts(search);
+    public ResponseEntity<List<Product>> getAllProducts(@RequestParam(required = false) String category,
+            @RequestParam(required = false) String search, WebRequest request) {
+        String etag = productService.getCatalogEtag("list|" + category + "|" + search);
+        return HttpCaching.conditional(request, etag, () -> {
+            if (category != null && !category.equals("All")) {
+                return productService.getByCategory(category);
+            }
+            if (search != null && !search.isEmpty()) {
+                return productService.searchProducts(search);
+            }
+            return productService.getAllProducts();
+        });
+    }
+
+    // Keyset-paginated listing of product cards for the storefront
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(@RequestParam(required = false) String category,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        String etag = productService.getCatalogEtag(
+                "page|" + category + "|" + search + "|" + sort + "|" + cursor + "|" + limit);
+        try {
+            return HttpCaching.conditional(request, etag, () -> productService.getProductPage(
+                    category != null && !category.equals("All") ? category : null,
+                    search != null && !search.isEmpty() ? search : null,
+                    ProductSort.fromParam(sort),
+                    cursor,
+                    limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
         }
-        return productService.getAllProducts();
+    }
+
+    // Filtered page plus per-facet counts, in one round trip to Mongo
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacets> getFacetedProducts(@RequestParam(required = false) String category,
+            @RequestParam(required = false) String artist,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int size,
+            WebRequest request) {
+        String etag = productService.getCatalogEtag("facets|" + category + "|" + artist + "|" + status + "|"
+                + minPrice + "|" + maxPrice + "|" + search + "|" + page + "|" + size);
+        ProductFacetQuery query = new ProductFacetQuery();
+        query.setCategory(category != null && !category.equals("All") ? category : null);
+        query.setArtist(artist != null && !artist.isEmpty() ? artist : null);
+        query.setStatus(status != null && !status.isEmpty() ? status : null);
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        query.setPage(page);
+        query.setSize(size);
+        return HttpCaching.conditional(request, etag, () -> productService.getFacetedProducts(query,
+                search != null && !search.isEmpty() ? search : null));
+    }
+
+    // Type-ahead completions for the search box, served from memory
+    @GetMapping("/suggest")
+    public List<Map<String, String>> suggest(@RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return productService.suggest(q, limit);
+    }
+
+    // Catalog cache hit/miss/eviction counters
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getCacheStats() {
+        return productService.getCacheStats();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
+    public ResponseEntity<Product> getProductById(@PathVariable String id, WebRequest request) {
+        // Served from the catalog cache, so a 304 needs neither a query nor serialization
         return productService.getProductById(id)
-                .map(ResponseEntity::ok)
+                .map(product -> HttpCaching.conditional(request,
+                        HttpCaching.versionTag("p", product.getId(), product.getVersion()), () -> product))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -42,13 +133,39 @@ public class ProductController {
         return productService.createProduct(product);
     }
 
+    // Full catalog export (Admin only): csv or ndjson, streamed from a cursor
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        boolean csv = !"ndjson".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(csv ? ExportFormats.CSV : ExportFormats.NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ExportFormats.attachment("products", csv))
+                .body(exportService.exportProducts(csv));
+    }
+
+    // Streaming import: NDJSON (one product per line) or CSV with a header row.
+    // Responds with one NDJSON result per input row, flushed batch by batch.
+    @PostMapping(value = "/import", consumes = { "application/x-ndjson", "text/csv" })
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType().toLowerCase(Locale.ROOT).startsWith("text/csv");
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        bulkImportService.importProducts(request.getInputStream(), csv, response.getOutputStream());
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Product> updateProduct(@PathVariable String id, @RequestBody Product productDetails) {
+    public ResponseEntity<?> updateProduct(@PathVariable String id, @RequestBody Product productDetails) {
         try {
             return ResponseEntity.ok(productService.updateProduct(id, productDetails));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new MessageResponse(e.getReason()));
+        } catch (OptimisticLockingFailureException e) {
+            // Reserved, sold or given image variants between our read and write
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new MessageResponse("Product was changed concurrently, please retry"));
         }
     }
 
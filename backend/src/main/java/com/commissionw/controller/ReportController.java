@@ -0,0 +1,79 @@
+package com.commissionw.controller;
+
+import com.commissionw.config.IndexPlan;
+import com.commissionw.model.SalesRollup;
+import com.commissionw.payload.response.MessageResponse;
+import com.commissionw.service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Admin dashboard figures; the sales endpoints read only the sales_rollups collection
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reports")
+@PreAuthorize("hasRole('ADMIN')")
+public class ReportController {
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_TOP = 100;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private IndexPlan indexPlan;
+
+    // Revenue, orders and units per day; defaults to the last 30 days
+    @GetMapping("/daily")
+    public ResponseEntity<?> getDaily(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || start.plusDays(MAX_DAYS - 1).isBefore(end)) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: Date range must be between 1 and " + MAX_DAYS + " days"));
+        }
+        return ResponseEntity.ok(salesRollupService.getDaily(start, end));
+    }
+
+    // Best-selling artists by revenue
+    @GetMapping("/artists")
+    public List<SalesRollup> getTopArtists(@RequestParam(defaultValue = "10") int limit) {
+        return salesRollupService.getTop(SalesRollup.ARTIST, Math.max(1, Math.min(limit, MAX_TOP)));
+    }
+
+    // Categories by revenue
+    @GetMapping("/categories")
+    public List<SalesRollup> getTopCategories(@RequestParam(defaultValue = "10") int limit) {
+        return salesRollupService.getTop(SalesRollup.CATEGORY, Math.max(1, Math.min(limit, MAX_TOP)));
+    }
+
+    // Recomputes the rollups from all orders in the background
+    @PostMapping("/rebuild")
+    public ResponseEntity<MessageResponse> rebuild() {
+        if (!salesRollupService.startRebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse("Rebuild already running"));
+        }
+        return ResponseEntity.accepted().body(new MessageResponse("Rebuild started"));
+    }
+
+    @GetMapping("/rebuild")
+    public MessageResponse getRebuildStatus() {
+        return new MessageResponse(salesRollupService.isRebuilding() ? "running" : "idle");
+    }
+
+    // Query shapes re-explained against the live collections, plus $indexStats usage per index
+    @GetMapping("/indexes")
+    public Map<String, Object> getIndexReport() {
+        indexPlan.verify();
+        return indexPlan.report();
+    }
+}
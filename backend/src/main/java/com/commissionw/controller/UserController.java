@@ -0,0 +1,85 @@
+package com.commissionw.controller;
+
+import com.commissionw.model.Role;
+import com.commissionw.model.User;
+import com.commissionw.payload.request.ChangePasswordRequest;
+import com.commissionw.payload.response.MessageResponse;
+import com.commissionw.repository.UserRepository;
+import com.commissionw.security.services.TokenVersionService;
+import com.commissionw.security.services.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/users")
+public class UserController {
+    private static final int MIN_PASSWORD_LENGTH = 6;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PasswordEncoder encoder;
+
+    @Autowired
+    TokenVersionService tokenVersionService;
+
+    // Change roles of a user (Admin only). Existing tokens of that user stop working.
+    @PutMapping("/{id}/roles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateRoles(@PathVariable String id, @RequestBody Set<String> strRoles) {
+        return userRepository.findById(id)
+                .map(user -> {
+                    Set<Role> roles = new HashSet<>();
+                    for (String role : strRoles) {
+                        try {
+                            roles.add(Role.valueOf(role));
+                        } catch (IllegalArgumentException e) {
+                            return ResponseEntity.badRequest()
+                                    .body(new MessageResponse("Error: Unknown role " + role));
+                        }
+                    }
+
+                    // Only roles and token version: a whole-document save could undo a concurrent change
+                    tokenVersionService.revokeTokens(user.getId(), new Update().set("roles", roles));
+                    return ResponseEntity.ok(new MessageResponse("Roles updated successfully!"));
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Change own password. All sessions, including the current one, must sign in again.
+    @PutMapping("/me/password")
+    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request,
+            Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+
+        String newPassword = request.getNewPassword();
+        if (newPassword == null || newPassword.isBlank() || newPassword.length() < MIN_PASSWORD_LENGTH) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: New password must be at least " + MIN_PASSWORD_LENGTH + " characters!"));
+        }
+
+        User user = userRepository.findById(userDetails.getId()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (request.getCurrentPassword() == null || !encoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: Current password is incorrect!"));
+        }
+
+        tokenVersionService.revokeTokens(user.getId(), new Update().set("password", encoder.encode(newPassword)));
+
+        return ResponseEntity.ok(new MessageResponse("Password changed successfully!"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.commissionw.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One row per pair of users, kept up to date as messages are sent, so the
+ * inbox never has to look at the messages themselves.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "conversations")
+@CompoundIndex(name = "participants_lastMessageAt", def = "{'participants': 1, 'lastMessageAt': -1}")
+public class ChatConversation {
+    // Same value as ChatMessage.conversationId
+    @Id
+    private String id;
+
+    private List<String> participants;
+    private String lastMessagePreview;
+    private String lastSenderId;
+    private LocalDateTime lastMessageAt;
+    // Unread message count keyed by participant id
+    private Map<String, Integer> unread;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -12,12 +13,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "chat_messages")
+@CompoundIndex(name = "conversation_timestamp", def = "{'conversationId': 1, 'timestamp': -1, '_id': -1}")
 public class ChatMessage {
     @Id
     private String id;
 
     private String senderId;
     private String receiverId; // Can be null if public/group
+    // Same for both directions of a pair: "<smaller id>_<larger id>"
+    private String conversationId;
     private String content;
     private LocalDateTime timestamp;
 }
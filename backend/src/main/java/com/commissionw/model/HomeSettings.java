@@ -2,6 +2,7 @@ package com.commissionw.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -16,6 +17,9 @@ public class HomeSettings {
     private String heroImageUrl;
     private List<String> featuredImageUrls = new ArrayList<>();
 
+    @Version
+    private Long version;
+
     // Default constructor initializes with 4 empty slots
     public HomeSettings() {
         this.featuredImageUrls = new ArrayList<>();
@@ -2,6 +2,9 @@ package com.commissionw.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -10,6 +13,15 @@ import java.util.List;
 
 @Data
 @Document(collection = "orders")
+// Every listing sorts by (createdAt, _id) descending; each index serves one
+// equality filter plus that sort, so a page is an index range scan
+@CompoundIndexes({
+        @CompoundIndex(name = "createdAt", def = "{'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "paymentStatus_createdAt", def = "{'paymentStatus': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "paymentMethod_createdAt", def = "{'paymentMethod': 1, 'createdAt': -1, '_id': -1}")
+})
 public class Order {
     @Id
     private String id;
@@ -33,6 +45,10 @@ public class Order {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Incremented by every state change; clients send it back to detect conflicts
+    @Version
+    private Long version;
+
     @Data
     public static class OrderItem {
         private String productId;
@@ -40,6 +56,9 @@ public class Order {
         private String productImageUrl;
         private Double price;
         private Integer quantity;
+        // Copied from the product when the order is placed, for sales reports
+        private String artist;
+        private String category;
     }
 
     @Data
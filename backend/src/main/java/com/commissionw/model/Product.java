@@ -1,15 +1,29 @@
 package com.commissionw.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "products")
+// One per catalog listing: category filter (newest first) and each sort of ProductSort, _id as tie-breaker
+@CompoundIndexes({
+        @CompoundIndex(name = "category_id", def = "{'category': 1, '_id': -1}"),
+        @CompoundIndex(name = "price_id", def = "{'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "title_id", def = "{'title': 1, '_id': 1}")
+})
 public class Product {
     @Id
     private String id;
@@ -19,8 +33,34 @@ public class Product {
     private Double price;
     private String description;
     private String category;
+    @Indexed(sparse = true)
     private String imageUrl;
 
+    // Resized copies of imageUrl (original included), filled in by the derivative pipeline
+    private List<ImageVariant> imageVariants;
+    // Tiny blurred preview as a data: URI, shown while the real image loads
+    private String imagePlaceholder;
+
     // Available, Sold, Pending
     private String status;
+
+    // Set while the product is held for an order during checkout (status pending)
+    // Only pending products are ever looked up by these, so only they are indexed
+    @JsonIgnore
+    @Indexed(name = "reservedBy_pending", partialFilter = "{ 'status': 'pending' }")
+    private String reservedBy;
+    @Indexed(name = "reservedUntil_pending", partialFilter = "{ 'status': 'pending' }")
+    private LocalDateTime reservedUntil;
+
+    // Incremented on every save; also the basis of the product's ETag
+    @Version
+    private Long version;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ImageVariant {
+        private int width;
+        private String url;
+    }
 }
@@ -0,0 +1,42 @@
+package com.commissionw.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Running sales totals for one day, artist or category. Maintained with $inc
+ * as orders change, so reports never have to scan the orders collection.
+ * Cancelled orders count nowhere; "paid" figures only include orders whose
+ * payment status is paid.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "sales_rollups")
+@CompoundIndex(name = "type_revenue", def = "{'type': 1, 'revenue': -1}")
+public class SalesRollup {
+    public static final String DAY = "day";
+    public static final String ARTIST = "artist";
+    public static final String CATEGORY = "category";
+
+    // "<type>:<key>", e.g. "day:2024-05-01" or "artist:Nguyen Van A"
+    @Id
+    private String id;
+
+    private String type;
+    private String key;
+
+    private long orders;
+    private long units;
+    private double revenue;
+    private long paidOrders;
+    private double paidRevenue;
+
+    public static String idOf(String type, String key) {
+        return type + ":" + key;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Set;
@@ -13,13 +14,26 @@ import java.util.Set;
 @AllArgsConstructor
 @Document(collection = "users")
 public class User {
+    public static final String USERNAME_INDEX = "username_unique";
+    public static final String EMAIL_INDEX = "email_unique";
+
     @Id
     private String id;
 
+    // Uniqueness is enforced by these indexes, not by checking before insert
+    @Indexed(name = USERNAME_INDEX, unique = true)
     private String username;
+
+    @Indexed(name = EMAIL_INDEX, unique = true, sparse = true)
     private String email;
+
     private String password; // Hashed
     private String phone;
 
     private Set<Role> roles;
+
+    // Bumped on role or password change to revoke previously issued tokens.
+    // Only revoked users (version > 0) are loaded at startup, so only they are indexed.
+    @Indexed(name = "tokenVersion_revoked", partialFilter = "{ 'tokenVersion': { '$gt': 0 } }")
+    private Integer tokenVersion;
 }
@@ -0,0 +1,9 @@
+package com.commissionw.payload.request;
+
+import lombok.Data;
+
+@Data
+public class ChangePasswordRequest {
+    private String currentPassword;
+    private String newPassword;
+}
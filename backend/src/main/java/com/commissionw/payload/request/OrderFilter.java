@@ -0,0 +1,17 @@
+package com.commissionw.payload.request;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class OrderFilter {
+    // Set by the server for "my orders"; admins list everyone's orders
+    private String userId;
+    private String status;
+    private String paymentStatus;
+    private String paymentMethod;
+    // createdAt range: from inclusive, to exclusive
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,13 @@
+package com.commissionw.payload.request;
+
+import lombok.Data;
+
+@Data
+public class OrderStatusChange {
+    private String id;
+    private String status;
+    // Required: the version the caller last saw, as for PUT /api/orders/{id}/status
+    private Long version;
+    // Optional extra guard
+    private String expectedStatus;
+}
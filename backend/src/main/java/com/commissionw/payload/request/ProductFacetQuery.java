@@ -0,0 +1,18 @@
+package com.commissionw.payload.request;
+
+import lombok.Data;
+
+import java.util.Collection;
+
+@Data
+public class ProductFacetQuery {
+    private String category;
+    private String artist;
+    private String status;
+    private Double minPrice;
+    private Double maxPrice;
+    // Restricts results to these ids, e.g. search hits; null means no restriction
+    private Collection<String> ids;
+    private int page;
+    private int size;
+}
@@ -0,0 +1,18 @@
+package com.commissionw.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one input row of a bulk endpoint, written as one NDJSON line
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkRowResult {
+    // 1-based position in the input, not counting a CSV header
+    private long row;
+    private String id;
+    private boolean ok;
+    // null when ok
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.commissionw.payload.response;
+
+import com.commissionw.model.ChatConversation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversationSummary {
+    private String partnerId;
+    private String lastMessagePreview;
+    private String lastSenderId;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+
+    public static ConversationSummary from(ChatConversation conversation, String userId) {
+        String partnerId = conversation.getParticipants().stream()
+                .filter(participant -> !participant.equals(userId))
+                .findFirst()
+                .orElse(userId);
+        Integer unread = conversation.getUnread() != null ? conversation.getUnread().get(userId) : null;
+        return new ConversationSummary(partnerId, conversation.getLastMessagePreview(),
+                conversation.getLastSenderId(), conversation.getLastMessageAt(), unread != null ? unread : 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.commissionw.payload.response;
+
+import com.commissionw.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// List-row view of an order, without items and shipping address
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummary {
+    private String id;
+    private String userId;
+    private String username;
+    private String email;
+    private Double totalAmount;
+    private String status;
+    private String paymentMethod;
+    private String paymentStatus;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public static OrderSummary from(Order order) {
+        return new OrderSummary(
+                order.getId(),
+                order.getUserId(),
+                order.getUsername(),
+                order.getEmail(),
+                order.getTotalAmount(),
+                order.getStatus(),
+                order.getPaymentMethod(),
+                order.getPaymentStatus(),
+                order.getCreatedAt(),
+                order.getUpdatedAt());
+    }
+}
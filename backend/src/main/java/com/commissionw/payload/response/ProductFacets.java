@@ -0,0 +1,31 @@
+package com.commissionw.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacets {
+    private List<ProductSummary> items;
+    private long total;
+    private int page;
+    private int size;
+
+    // Each facet is counted with every filter applied except its own
+    private List<FacetCount> categories;
+    private List<FacetCount> artists;
+    private List<FacetCount> statuses;
+    private List<FacetCount> priceRanges;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private long count;
+    }
+}
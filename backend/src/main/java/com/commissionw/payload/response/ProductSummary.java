@@ -0,0 +1,48 @@
+package com.commissionw.payload.response;
+
+import com.commissionw.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Card-sized view of a product, without the long text fields
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSummary {
+    private String id;
+    private String title;
+    private String artist;
+    private Double price;
+    private String category;
+    private String imageUrl;
+    private String status;
+    // "url 320w, url 640w, ..." for <img srcset>; null until derivatives exist
+    private String srcset;
+    private String imagePlaceholder;
+
+    public static ProductSummary from(Product product) {
+        return new ProductSummary(
+                product.getId(),
+                product.getTitle(),
+                product.getArtist(),
+                product.getPrice(),
+                product.getCategory(),
+                product.getImageUrl(),
+                product.getStatus(),
+                srcsetOf(product.getImageVariants()),
+                product.getImagePlaceholder());
+    }
+
+    private static String srcsetOf(List<Product.ImageVariant> variants) {
+        if (variants == null || variants.isEmpty()) {
+            return null;
+        }
+        return variants.stream()
+                .map(variant -> variant.getUrl() + " " + variant.getWidth() + "w")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -1,9 +1,20 @@
 package com.commissionw.repository;
 
 import com.commissionw.model.ChatMessage;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ChatRepository extends MongoRepository<ChatMessage, String> {
-    List<ChatMessage> findBySenderIdOrReceiverId(String senderId, String receiverId);
+    // Newest first; both queries are served by the (conversationId, timestamp, _id) index
+    @Query(value = "{ 'conversationId': ?0 }", sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<ChatMessage> findLatest(String conversationId, Pageable pageable);
+
+    @Query(value = "{ 'conversationId': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, "
+            + "{ 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }", sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<ChatMessage> findBefore(String conversationId, LocalDateTime timestamp, ObjectId id, Pageable pageable);
 }
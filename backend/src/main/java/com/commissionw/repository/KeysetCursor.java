@@ -0,0 +1,79 @@
+package com.commissionw.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination. It records the sort it
+ * was issued for, the sort value of the last returned row and that row's id,
+ * so the next page can resume with an index seek instead of a skip.
+ */
+public record KeysetCursor(String sort, String value, String id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Marks a null sort value, distinct from an empty string
+    private static final String NULL_VALUE = "~";
+
+    public String encode() {
+        return part(sort) + "." + (value == null ? NULL_VALUE : part(value)) + "." + part(id);
+    }
+
+    public static KeysetCursor decode(String token, String expectedSort) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        KeysetCursor cursor;
+        try {
+            String value = NULL_VALUE.equals(parts[1]) ? null : unpart(parts[1]);
+            cursor = new KeysetCursor(unpart(parts[0]), value, unpart(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (!cursor.sort().equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        return cursor;
+    }
+
+    /**
+     * Criteria selecting the rows strictly after this cursor for a sort on
+     * {@code field} (may be {@code null} to sort by id only) with the id as
+     * tie-breaker in the same direction. Mongo orders nulls first, so they
+     * precede all values ascending and follow them descending.
+     */
+    public Criteria after(String field, Sort.Direction direction, Object typedValue) {
+        boolean asc = direction.isAscending();
+        Criteria idAfter = asc ? Criteria.where("id").gt(id) : Criteria.where("id").lt(id);
+        if (field == null) {
+            return idAfter;
+        }
+
+        if (typedValue == null) {
+            return asc
+                    ? new Criteria().orOperator(
+                            new Criteria().andOperator(Criteria.where(field).is(null), idAfter),
+                            Criteria.where(field).ne(null))
+                    : new Criteria().andOperator(Criteria.where(field).is(null), idAfter);
+        }
+
+        Criteria beyond = asc ? Criteria.where(field).gt(typedValue) : Criteria.where(field).lt(typedValue);
+        Criteria tie = new Criteria().andOperator(Criteria.where(field).is(typedValue), idAfter);
+        return asc
+                ? new Criteria().orOperator(beyond, tie)
+                : new Criteria().orOperator(beyond, tie, Criteria.where(field).is(null));
+    }
+
+    private static String part(String raw) {
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unpart(String encoded) {
+        return new String(DECODER.decode(encoded), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.commissionw.repository;
+
+import com.commissionw.model.Order;
+import com.commissionw.payload.request.OrderFilter;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    /**
+     * Returns up to {@code limit} matching orders, newest first, after
+     * {@code after} (or from the start when null). Items and shipping address
+     * are not loaded.
+     */
+    List<Order> findPage(OrderFilter filter, KeysetCursor after, int limit);
+}
@@ -0,0 +1,77 @@
+package com.commissionw.repository;
+
+import com.commissionw.model.Order;
+import com.commissionw.payload.request.OrderFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    public static final String CURSOR_SORT = "CREATED";
+
+    static final String[] SUMMARY_FIELDS = { "userId", "username", "email", "totalAmount", "status",
+            "paymentMethod", "paymentStatus", "createdAt", "updatedAt" };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Order> findPage(OrderFilter filter, KeysetCursor after, int limit) {
+        // Equality filters first, then the createdAt range: matches the
+        // (field, createdAt, _id) compound indexes declared on Order
+        List<Criteria> filters = new ArrayList<>();
+        if (filter.getUserId() != null) {
+            filters.add(Criteria.where("userId").is(filter.getUserId()));
+        }
+        if (filter.getStatus() != null) {
+            filters.add(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getPaymentStatus() != null) {
+            filters.add(Criteria.where("paymentStatus").is(filter.getPaymentStatus()));
+        }
+        if (filter.getPaymentMethod() != null) {
+            filters.add(Criteria.where("paymentMethod").is(filter.getPaymentMethod()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (filter.getFrom() != null) {
+                createdAt = createdAt.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                createdAt = createdAt.lt(filter.getTo());
+            }
+            filters.add(createdAt);
+        }
+        if (after != null) {
+            filters.add(after.after("createdAt", Sort.Direction.DESC, cursorValue(after)));
+        }
+
+        Query query = new Query();
+        if (!filters.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filters));
+        }
+        query.fields().include(SUMMARY_FIELDS);
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt", "id")).limit(limit);
+
+        return mongoTemplate.find(query, Order.class);
+    }
+
+    private static LocalDateTime cursorValue(KeysetCursor cursor) {
+        if (cursor.value() == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(cursor.value());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -4,10 +4,6 @@ import com.commissionw.model.Product;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
     List<Product> findByCategory(String category);
-
-    List<Product> findByArtistContainingIgnoreCase(String artist);
-
-    List<Product> findByTitleContainingIgnoreCase(String title);
 }
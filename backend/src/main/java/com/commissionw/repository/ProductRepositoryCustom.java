@@ -0,0 +1,23 @@
+package com.commissionw.repository;
+
+import com.commissionw.model.Product;
+import com.commissionw.payload.request.ProductFacetQuery;
+import com.commissionw.payload.response.ProductFacets;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Returns up to {@code limit} products after {@code after} (or from the
+     * start when null), with only the card fields loaded. A non-null
+     * {@code ids} restricts the page to those products (e.g. search hits).
+     */
+    List<Product> findPage(String category, Collection<String> ids, ProductSort sort, KeysetCursor after, int limit);
+
+    /**
+     * Returns one page of matching products together with category, artist,
+     * status and price-range counts, all in a single aggregation.
+     */
+    ProductFacets findFaceted(ProductFacetQuery query);
+}
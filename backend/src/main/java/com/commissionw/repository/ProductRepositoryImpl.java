@@ -0,0 +1,200 @@
+package com.commissionw.repository;
+
+import com.commissionw.model.Product;
+import com.commissionw.payload.request.ProductFacetQuery;
+import com.commissionw.payload.response.ProductFacets;
+import com.commissionw.payload.response.ProductFacets.FacetCount;
+import com.commissionw.payload.response.ProductSummary;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    static final String[] SUMMARY_FIELDS = { "title", "artist", "price", "category", "imageUrl", "status",
+            "imageVariants", "imagePlaceholder" };
+
+    // Lower bounds of the price-range facet (VND); the last bucket is open-ended
+    static final double[] PRICE_BOUNDARIES = { 0, 1_000_000, 2_000_000, 5_000_000, 10_000_000 };
+    private static final String OPEN_PRICE_BUCKET = "10000000+";
+    private static final int FACET_LIMIT = 50;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Product> findPage(String category, Collection<String> ids, ProductSort sort, KeysetCursor after, int limit) {
+        List<Criteria> filters = new ArrayList<>();
+        if (category != null) {
+            filters.add(Criteria.where("category").is(category));
+        }
+        if (ids != null) {
+            filters.add(Criteria.where("id").in(ids));
+        }
+        if (after != null) {
+            filters.add(after.after(sort.getField(), sort.getDirection(), cursorValue(sort, after)));
+        }
+
+        Query query = new Query();
+        if (!filters.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filters));
+        }
+        query.fields().include(SUMMARY_FIELDS);
+
+        Sort order = sort.getField() == null
+                ? Sort.by(sort.getDirection(), "id")
+                : Sort.by(sort.getDirection(), sort.getField(), "id");
+        query.with(order).limit(limit);
+
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    private static Object cursorValue(ProductSort sort, KeysetCursor cursor) {
+        if (cursor.value() == null || sort.getField() == null) {
+            return null;
+        }
+        if ("price".equals(sort.getField())) {
+            try {
+                return Double.valueOf(cursor.value());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        return cursor.value();
+    }
+
+    @Override
+    public ProductFacets findFaceted(ProductFacetQuery q) {
+        Criteria category = q.getCategory() != null ? Criteria.where("category").is(q.getCategory()) : null;
+        Criteria artist = q.getArtist() != null ? Criteria.where("artist").is(q.getArtist()) : null;
+        Criteria status = q.getStatus() != null ? Criteria.where("status").is(q.getStatus()) : null;
+        Criteria price = null;
+        if (q.getMinPrice() != null || q.getMaxPrice() != null) {
+            price = Criteria.where("price");
+            if (q.getMinPrice() != null) {
+                price = price.gte(q.getMinPrice());
+            }
+            if (q.getMaxPrice() != null) {
+                price = price.lte(q.getMaxPrice());
+            }
+        }
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        if (q.getIds() != null) {
+            pipeline.add(Aggregation.match(Criteria.where("id").in(q.getIds())));
+        }
+        pipeline.add(Aggregation
+                .facet(
+                        Aggregation.match(allOf(category, artist, status, price)),
+                        Aggregation.sort(Sort.by(Sort.Direction.DESC, "id")),
+                        Aggregation.skip((long) q.getPage() * q.getSize()),
+                        Aggregation.limit(q.getSize()),
+                        Aggregation.project(SUMMARY_FIELDS))
+                .as("items")
+                .and(
+                        Aggregation.match(allOf(category, artist, status, price)),
+                        Aggregation.count().as("total"))
+                .as("total")
+                .and(
+                        Aggregation.match(allOf(artist, status, price)),
+                        Aggregation.sortByCount("category"),
+                        Aggregation.limit(FACET_LIMIT))
+                .as("categories")
+                .and(
+                        Aggregation.match(allOf(category, status, price)),
+                        Aggregation.sortByCount("artist"),
+                        Aggregation.limit(FACET_LIMIT))
+                .as("artists")
+                .and(
+                        Aggregation.match(allOf(category, artist, price)),
+                        Aggregation.sortByCount("status"))
+                .as("statuses")
+                .and(
+                        // Only priced products: the default bucket would also catch null or missing prices
+                        Aggregation.match(allOf(category, artist, status, Criteria.where("price").gte(0))),
+                        Aggregation.bucket("price")
+                                .withBoundaries(boundaries())
+                                .withDefaultBucket(OPEN_PRICE_BUCKET)
+                                .andOutputCount().as("count"))
+                .as("priceRanges"));
+
+        TypedAggregation<Product> aggregation = Aggregation.newAggregation(Product.class, pipeline);
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            result = new Document();
+        }
+
+        List<ProductSummary> items = new ArrayList<>();
+        for (Document doc : result.getList("items", Document.class, List.of())) {
+            items.add(ProductSummary.from(mongoTemplate.getConverter().read(Product.class, doc)));
+        }
+        List<Document> total = result.getList("total", Document.class, List.of());
+
+        return new ProductFacets(
+                items,
+                total.isEmpty() ? 0 : ((Number) total.get(0).get("total")).longValue(),
+                q.getPage(),
+                q.getSize(),
+                counts(result, "categories"),
+                counts(result, "artists"),
+                counts(result, "statuses"),
+                priceCounts(result));
+    }
+
+    private static Criteria allOf(Criteria... filters) {
+        List<Criteria> present = new ArrayList<>();
+        for (Criteria filter : filters) {
+            if (filter != null) {
+                present.add(filter);
+            }
+        }
+        return present.isEmpty() ? new Criteria() : new Criteria().andOperator(present);
+    }
+
+    private static Object[] boundaries() {
+        Object[] boundaries = new Object[PRICE_BOUNDARIES.length];
+        for (int i = 0; i < PRICE_BOUNDARIES.length; i++) {
+            boundaries[i] = PRICE_BOUNDARIES[i];
+        }
+        return boundaries;
+    }
+
+    private static List<FacetCount> counts(Document result, String facet) {
+        List<FacetCount> counts = new ArrayList<>();
+        for (Document doc : result.getList(facet, Document.class, List.of())) {
+            Object value = doc.get("_id");
+            if (value != null) {
+                counts.add(new FacetCount(value.toString(), ((Number) doc.get("count")).longValue()));
+            }
+        }
+        return counts;
+    }
+
+    // Bucket ids are the lower boundaries; label them as "from-to" ranges
+    private static List<FacetCount> priceCounts(Document result) {
+        List<FacetCount> counts = new ArrayList<>();
+        for (Document doc : result.getList("priceRanges", Document.class, List.of())) {
+            Object id = doc.get("_id");
+            String label = OPEN_PRICE_BUCKET;
+            if (id instanceof Number lower) {
+                for (int i = 0; i < PRICE_BOUNDARIES.length - 1; i++) {
+                    if (PRICE_BOUNDARIES[i] == lower.doubleValue()) {
+                        label = (long) PRICE_BOUNDARIES[i] + "-" + (long) PRICE_BOUNDARIES[i + 1];
+                    }
+                }
+            }
+            counts.add(new FacetCount(label, ((Number) doc.get("count")).longValue()));
+        }
+        return counts;
+    }
+}
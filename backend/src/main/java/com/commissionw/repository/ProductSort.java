@@ -0,0 +1,34 @@
+package com.commissionw.repository;
+
+import org.springframework.data.domain.Sort;
+
+public enum ProductSort {
+    // ObjectIds grow with insertion time, so the id doubles as creation order
+    NEWEST(null, Sort.Direction.DESC),
+    PRICE_ASC("price", Sort.Direction.ASC),
+    PRICE_DESC("price", Sort.Direction.DESC),
+    TITLE("title", Sort.Direction.ASC);
+
+    private final String field;
+    private final Sort.Direction direction;
+
+    ProductSort(String field, Sort.Direction direction) {
+        this.field = field;
+        this.direction = direction;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public static ProductSort fromParam(String param) {
+        if (param == null || param.isEmpty()) {
+            return NEWEST;
+        }
+        return ProductSort.valueOf(param.toUpperCase());
+    }
+}
@@ -2,8 +2,11 @@ package com.commissionw.security;
 
 import com.commissionw.security.jwt.AuthEntryPointJwt;
 import com.commissionw.security.jwt.AuthTokenFilter;
+import com.commissionw.security.password.BoundedPasswordEncoder;
 import com.commissionw.security.services.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,8 +15,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -26,6 +27,18 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Value("${commissionw.app.security.bcryptStrength:10}")
+    private int bcryptStrength;
+
+    @Value("${commissionw.app.security.hashingThreads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int hashingThreads;
+
+    @Value("${commissionw.app.security.hashingQueue:64}")
+    private int hashingQueue;
+
+    @Value("${commissionw.app.security.hashingTimeoutMs:5000}")
+    private long hashingTimeoutMs;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -37,6 +50,7 @@ public class WebSecurityConfig {
 
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsService);
 
         return authProvider;
     }
@@ -46,9 +60,11 @@ public class WebSecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
+    // BCrypt on a bounded pool so hashing cannot take every request thread;
+    // changing bcryptStrength rehashes each password at its next login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(bcryptStrength, hashingThreads, hashingQueue, hashingTimeoutMs);
     }
 
     @Bean
@@ -57,6 +73,8 @@ public class WebSecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches continue a request that was already authorized (SSE, futures)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll() // Authenticatoin endpoints
                         .requestMatchers("/api/test/**").permitAll() // Test endpoints
                         .requestMatchers("/uploads/**").permitAll() // Public access to uploaded files
@@ -0,0 +1,92 @@
+package com.commissionw.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified.
+ * Entries are keyed by a SHA-256 digest of the raw token (the token itself is
+ * never retained) and expire together with the token.
+ */
+public class VerifiedTokenCache {
+
+    private final int maxEntries;
+    // Room made per overflow, so a flood of new tokens pays for a full pass only now and then
+    private final int evictBatch;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.evictBatch = Math.max(1, maxEntries / 10);
+    }
+
+    public Claims get(String token, long nowMs) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMs <= nowMs) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.claims;
+    }
+
+    public void put(String token, Claims claims, long nowMs) {
+        if (claims.getExpiration() == null) {
+            // Never cache tokens that do not expire
+            return;
+        }
+        long expiresAtMs = claims.getExpiration().getTime();
+        if (expiresAtMs <= nowMs) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(nowMs);
+        }
+        entries.put(digest(token), new Entry(claims, expiresAtMs));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Drop expired entries first; if that frees less than a batch, drop
+    // arbitrary entries until a batch is free, so that a flood of distinct
+    // tokens cannot grow it without bound.
+    private void evict(long nowMs) {
+        entries.values().removeIf(entry -> entry.expiresAtMs <= nowMs);
+
+        int toRemove = entries.size() - (maxEntries - evictBatch);
+        Iterator<String> it = entries.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAtMs) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.commissionw.security.password;
+
+/**
+ * Thrown when the password-hashing pool and its queue are full, or a hash
+ * waited past its deadline. Callers should answer 503 and let the client
+ * retry.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package com.commissionw.security.services;
+
+import com.commissionw.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the current token version of every user in memory so that the JWT
+ * filter can reject revoked tokens without reading the user document.
+ * Only users whose version has ever been bumped are held in the map; everyone
+ * else is implicitly at version 0.
+ */
+@Service
+public class TokenVersionService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, Integer> versions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        Query query = new Query(Criteria.where("tokenVersion").gt(0));
+        query.fields().include("tokenVersion");
+        for (User user : mongoTemplate.find(query, User.class)) {
+            versions.put(user.getId(), user.getTokenVersion());
+        }
+    }
+
+    public int currentVersion(String userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Invalidates every token issued so far for the user. Call this after a
+     * role or password change.
+     */
+    public int revokeTokens(String userId) {
+        return revokeTokens(userId, new Update());
+    }
+
+    /**
+     * Applies the change (e.g. a new password or roles) and invalidates the
+     * user's tokens in the same write, so no token can be issued in between
+     * and a concurrent revocation is never overwritten.
+     */
+    public int revokeTokens(String userId, Update change) {
+        Query query = new Query(Criteria.where("id").is(userId));
+        query.fields().include("tokenVersion");
+        User updated = mongoTemplate.findAndModify(query,
+                change.inc("tokenVersion", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        if (updated == null) {
+            throw new RuntimeException("User not found");
+        }
+        versions.put(userId, updated.getTokenVersion());
+        return updated.getTokenVersion();
+    }
+}
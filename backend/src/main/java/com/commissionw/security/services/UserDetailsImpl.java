@@ -1,7 +1,9 @@
 package com.commissionw.security.services;
 
 import com.commissionw.model.User;
+import com.commissionw.security.jwt.JwtUtils;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -45,6 +47,25 @@ public class UserDetailsImpl implements UserDetails {
                 authorities);
     }
 
+    /**
+     * Rebuilds the principal from verified JWT claims. The password is not
+     * available (and not needed) for token-authenticated requests.
+     */
+    public static UserDetailsImpl fromClaims(Claims claims) {
+        List<?> roles = claims.get(JwtUtils.CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of()
+                : roles.stream()
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                        .toList();
+
+        return new UserDetailsImpl(
+                claims.get(JwtUtils.CLAIM_USER_ID, String.class),
+                claims.getSubject(),
+                claims.get(JwtUtils.CLAIM_EMAIL, String.class),
+                null,
+                authorities);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -0,0 +1,387 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import com.commissionw.payload.request.OrderStatusChange;
+import com.commissionw.payload.response.BulkRowResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Streaming bulk endpoints. Input is read one record at a time and written
+ * to Mongo in batches of {@code batchSize}; one NDJSON result line per input
+ * row is written and flushed after every batch. Memory use is bounded by the
+ * batch, not by the size of the upload: a record longer than
+ * {@code maxRecordChars} (e.g. an unterminated quoted field) fails that row
+ * and reading resumes at the next line.
+ */
+@Service
+public class BulkImportService {
+    private static final Set<String> IMPORT_STATUSES = Set.of("available", "sold");
+    private static final int BOM = '\uFEFF';
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${commissionw.app.bulk.batchSize:500}")
+    private int batchSize;
+
+    @Value("${commissionw.app.bulk.maxRecordChars:65536}")
+    private int maxRecordChars;
+
+    /**
+     * Imports new products from NDJSON (one product object per line) or CSV
+     * (header row naming the columns title, artist, price, description,
+     * category, imageUrl, status).
+     */
+    public void importProducts(InputStream in, boolean csv, OutputStream out) throws IOException {
+        BufferedReader reader = openReader(in);
+        Batch<Product> batch = new Batch<>(out);
+
+        if (csv) {
+            List<String> header;
+            try {
+                header = readCsvRecord(reader, maxRecordChars);
+            } catch (IllegalArgumentException e) {
+                batch.fail(0, null, "header " + e.getMessage());
+                flushProducts(batch);
+                return;
+            }
+            if (header == null) {
+                return;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            long row = 0;
+            while (true) {
+                List<String> record;
+                try {
+                    record = readCsvRecord(reader, maxRecordChars);
+                } catch (IllegalArgumentException e) {
+                    batch.fail(++row, null, e.getMessage());
+                    flushIfFull(batch);
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                row++;
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(row, validated(productFromCsv(columns, record)));
+                } catch (IllegalArgumentException e) {
+                    batch.fail(row, null, e.getMessage());
+                }
+                flushIfFull(batch);
+            }
+        } else {
+            long row = 0;
+            while (true) {
+                String line;
+                try {
+                    line = readLine(reader, maxRecordChars);
+                } catch (IllegalArgumentException e) {
+                    batch.fail(++row, null, e.getMessage());
+                    flushIfFull(batch);
+                    continue;
+                }
+                if (line == null) {
+                    break;
+                }
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(row, validated(objectMapper.readValue(line, Product.class)));
+                } catch (JsonProcessingException e) {
+                    batch.fail(row, null, "Invalid JSON: " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    batch.fail(row, null, e.getMessage());
+                }
+                flushIfFull(batch);
+            }
+        }
+        flushProducts(batch);
+    }
+
+    /**
+     * Applies order status changes given as NDJSON lines of
+     * {@code {"id", "status", "version", "expectedStatus"?}}.
+     */
+    public void updateOrderStatuses(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = openReader(in);
+        Batch<OrderStatusChange> batch = new Batch<>(out);
+        long row = 0;
+        while (true) {
+            String line;
+            try {
+                line = readLine(reader, maxRecordChars);
+            } catch (IllegalArgumentException e) {
+                batch.fail(++row, null, e.getMessage());
+                flushOrdersIfFull(batch);
+                continue;
+            }
+            if (line == null) {
+                break;
+            }
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(row, objectMapper.readValue(line, OrderStatusChange.class));
+            } catch (JsonProcessingException e) {
+                batch.fail(row, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+            flushOrdersIfFull(batch);
+        }
+        flushOrders(batch);
+    }
+
+    private void flushIfFull(Batch<Product> batch) throws IOException {
+        if (batch.size() >= batchSize) {
+            flushProducts(batch);
+        }
+    }
+
+    private void flushOrdersIfFull(Batch<OrderStatusChange> batch) throws IOException {
+        if (batch.size() >= batchSize) {
+            flushOrders(batch);
+        }
+    }
+
+    private void flushProducts(Batch<Product> batch) throws IOException {
+        List<String> errors = batch.items.isEmpty() ? List.of() : productService.insertProducts(batch.items);
+        batch.complete(errors, Product::getId);
+    }
+
+    private void flushOrders(Batch<OrderStatusChange> batch) throws IOException {
+        List<String> errors = batch.items.isEmpty() ? List.of() : orderService.applyStatusChanges(batch.items);
+        batch.complete(errors, OrderStatusChange::getId);
+    }
+
+    private static Product validated(Product product) {
+        if (product.getTitle() == null || product.getTitle().isBlank()) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (product.getPrice() == null || product.getPrice() < 0) {
+            throw new IllegalArgumentException("price must be a non-negative number");
+        }
+        if (product.getStatus() == null || product.getStatus().isBlank()) {
+            product.setStatus("available");
+        } else if (!IMPORT_STATUSES.contains(product.getStatus())) {
+            throw new IllegalArgumentException("status must be one of " + IMPORT_STATUSES);
+        }
+        // Server-managed fields are never taken from the file
+        product.setId(null);
+        product.setVersion(null);
+        product.setImageVariants(null);
+        product.setImagePlaceholder(null);
+        product.setReservedBy(null);
+        product.setReservedUntil(null);
+        return product;
+    }
+
+    private static Product productFromCsv(Map<String, Integer> columns, List<String> record) {
+        Product product = new Product();
+        product.setTitle(column(columns, record, "title"));
+        product.setArtist(column(columns, record, "artist"));
+        product.setDescription(column(columns, record, "description"));
+        product.setCategory(column(columns, record, "category"));
+        product.setImageUrl(column(columns, record, "imageurl"));
+        product.setStatus(column(columns, record, "status"));
+        String price = column(columns, record, "price");
+        if (price != null) {
+            try {
+                product.setPrice(Double.valueOf(price.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("price is not a number: " + price);
+            }
+        }
+        return product;
+    }
+
+    private static String column(Map<String, Integer> columns, List<String> record, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // Files saved by Excel and Notepad start with a byte order mark; it is not part of the data
+    static BufferedReader openReader(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != BOM) {
+            reader.reset();
+        }
+        return reader;
+    }
+
+    /**
+     * Reads one line without its line break; null at end of input. A line
+     * longer than maxChars is skipped and reported with
+     * IllegalArgumentException.
+     */
+    static String readLine(BufferedReader reader, int maxChars) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        while (c != -1 && c != '\n') {
+            if (line.length() >= maxChars) {
+                skipLine(reader);
+                throw tooLong(maxChars);
+            }
+            line.append((char) c);
+            c = reader.read();
+        }
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            line.setLength(end - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Reads one RFC 4180 record: comma-separated, fields optionally quoted,
+     * "" for a quote inside a quoted field, and line breaks allowed inside
+     * quotes. Returns null at end of input. A record longer than maxChars
+     * is skipped up to the next line break, quoted or not, and reported
+     * with IllegalArgumentException.
+     */
+    static List<String> readCsvRecord(BufferedReader reader, int maxChars) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (c != -1) {
+            if (++length > maxChars) {
+                if (c != '\n') {
+                    skipLine(reader);
+                }
+                throw tooLong(maxChars);
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void skipLine(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while (c != -1 && c != '\n');
+    }
+
+    private static IllegalArgumentException tooLong(int maxChars) {
+        return new IllegalArgumentException("record is longer than " + maxChars + " characters");
+    }
+
+    // Rows waiting for the next write, plus results for rows already rejected
+    // while parsing, so that output stays in input order
+    private final class Batch<T> {
+        private final OutputStream out;
+        private final List<T> items = new ArrayList<>();
+        private final List<BulkRowResult> results = new ArrayList<>();
+        // Per result: index into items, or -1 if the row was rejected while parsing
+        private final List<Integer> itemIndexes = new ArrayList<>();
+
+        Batch(OutputStream out) {
+            this.out = out;
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        void add(long row, T item) {
+            results.add(new BulkRowResult(row, null, false, null));
+            itemIndexes.add(items.size());
+            items.add(item);
+        }
+
+        void fail(long row, String id, String error) {
+            results.add(new BulkRowResult(row, id, false, error));
+            itemIndexes.add(-1);
+        }
+
+        void complete(List<String> errors, Function<T, String> idOf) throws IOException {
+            for (int i = 0; i < results.size(); i++) {
+                BulkRowResult result = results.get(i);
+                int index = itemIndexes.get(i);
+                if (index >= 0) {
+                    result.setId(idOf.apply(items.get(index)));
+                    result.setError(errors.get(index));
+                    result.setOk(result.getError() == null);
+                }
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            out.flush();
+            items.clear();
+            results.clear();
+            itemIndexes.clear();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.commissionw.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog-wide change counter used to derive ETags for product listings.
+ * The epoch changes on every restart, so tags issued by a previous process
+ * (or another node) never match by accident.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    // Strong ETag for one particular view (filters, sort, page) of the catalog
+    public String etag(String view) {
+        return "\"c-" + epoch + "-" + version.get() + "-" + Integer.toHexString(view.hashCode()) + "\"";
+    }
+}
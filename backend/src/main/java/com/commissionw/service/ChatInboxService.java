@@ -0,0 +1,148 @@
+package com.commissionw.service;
+
+import com.commissionw.model.ChatConversation;
+import com.commissionw.model.ChatMessage;
+import com.commissionw.payload.response.ConversationSummary;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the per-pair conversation summaries behind the inbox. Every
+ * change is a single atomic update of one summary document.
+ */
+@Service
+public class ChatInboxService {
+    public static final int PREVIEW_LENGTH = 100;
+    public static final int DEFAULT_INBOX_SIZE = 50;
+    public static final int MAX_INBOX_SIZE = 200;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Records stored messages on their conversations with one unordered bulk
+     * write: one pipeline upsert per conversation that adds the receivers'
+     * unread counts and moves the last-message fields forward only if the
+     * batch's newest message is newer than the one already recorded, so
+     * batches applied out of order never roll the inbox back.
+     */
+    public void recordMessages(List<ChatMessage> messages) {
+        Map<String, ChatMessage> latest = new LinkedHashMap<>();
+        Map<String, Map<String, Integer>> unread = new HashMap<>();
+        for (ChatMessage message : messages) {
+            if (message.getConversationId() == null) {
+                continue;
+            }
+            latest.merge(message.getConversationId(), message, (a, b) -> isNewer(b, a) ? b : a);
+            if (!message.getSenderId().equals(message.getReceiverId())) {
+                unread.computeIfAbsent(message.getConversationId(), id -> new HashMap<>())
+                        .merge(message.getReceiverId(), 1, Integer::sum);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        List<UpdateOneModel<Document>> updates = new ArrayList<>();
+        for (ChatMessage message : latest.values()) {
+            updates.add(summaryUpdate(message, unread.getOrDefault(message.getConversationId(), Map.of())));
+        }
+        MongoCollection<Document> conversations = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(ChatConversation.class));
+        try {
+            conversations.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // First messages of a conversation racing on the upsert: the document exists now
+            List<UpdateOneModel<Document>> retry = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                retry.add(updates.get(error.getIndex()));
+            }
+            conversations.bulkWrite(retry, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    /**
+     * The user's conversations, most recently active first.
+     */
+    public List<ConversationSummary> getInbox(String userId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_INBOX_SIZE));
+        Query query = new Query(Criteria.where("participants").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "lastMessageAt"))
+                .limit(pageSize);
+        return mongoTemplate.find(query, ChatConversation.class).stream()
+                .map(conversation -> ConversationSummary.from(conversation, userId))
+                .toList();
+    }
+
+    /**
+     * Clears the user's unread counter on the conversation with the partner.
+     */
+    public void markRead(String userId, String partnerId) {
+        Query query = new Query(Criteria.where("_id").is(ChatService.conversationId(userId, partnerId))
+                .and("participants").is(userId));
+        mongoTemplate.updateFirst(query, new Update().set("unread." + userId, 0), ChatConversation.class);
+    }
+
+    private UpdateOneModel<Document> summaryUpdate(ChatMessage message, Map<String, Integer> unreadByReceiver) {
+        String sender = message.getSenderId();
+        String receiver = message.getReceiverId();
+        List<String> participants = sender.compareTo(receiver) <= 0 ? List.of(sender, receiver) : List.of(receiver, sender);
+        Object timestamp = mongoTemplate.getConverter().convertToMongoType(message.getTimestamp());
+
+        // All expressions of one $set see the document as it was before the update
+        Document newer = new Document("$lt", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$lastMessageAt", null)), timestamp));
+        Document set = new Document("participants", new Document("$ifNull", Arrays.asList("$participants", participants)))
+                .append("lastMessagePreview", ifNewer(newer, preview(message.getContent()), "$lastMessagePreview"))
+                .append("lastSenderId", ifNewer(newer, sender, "$lastSenderId"))
+                .append("lastMessageAt", ifNewer(newer, timestamp, "$lastMessageAt"));
+        unreadByReceiver.forEach((userId, count) -> set.append("unread." + userId,
+                new Document("$add", Arrays.asList(new Document("$ifNull", Arrays.asList("$unread." + userId, 0)), count))));
+
+        return new UpdateOneModel<>(new Document("_id", message.getConversationId()),
+                List.of(new Document("$set", set)), new UpdateOptions().upsert(true));
+    }
+
+    private static Document ifNewer(Document newer, Object value, String current) {
+        // $literal: message text starting with '$' must not be read as a field path
+        return new Document("$cond", Arrays.asList(newer, new Document("$literal", value), current));
+    }
+
+    private static boolean isNewer(ChatMessage a, ChatMessage b) {
+        int byTime = a.getTimestamp().compareTo(b.getTimestamp());
+        return byTime != 0 ? byTime > 0 : a.getId().compareTo(b.getId()) > 0;
+    }
+
+    private static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        // Do not cut a surrogate pair in half
+        int end = Character.isHighSurrogate(content.charAt(PREVIEW_LENGTH - 1)) ? PREVIEW_LENGTH - 1 : PREVIEW_LENGTH;
+        return content.substring(0, end);
+    }
+}
@@ -0,0 +1,248 @@
+package com.commissionw.service;
+
+import com.commissionw.model.ChatMessage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes chat messages to the recipient's open Server-Sent Events streams.
+ * Every connection has its own bounded buffer drained by a shared pool; a
+ * client that falls a full buffer behind is disconnected (it reloads the
+ * conversation on reconnect) so it can never hold up delivery to others.
+ *
+ * <p>A send is a blocking socket write. One that runs longer than
+ * {@code writeTimeoutMs} marks its connection stalled: the connection is
+ * dropped and the pool gets an extra thread until the stuck write returns
+ * (bounded by the connector's own write timeout), so stalled sockets never
+ * reduce the capacity left for everyone else.
+ */
+@Service
+public class ChatPushService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatPushService.class);
+
+    @Value("${commissionw.app.chat.push.bufferSize:64}")
+    private int bufferSize;
+
+    @Value("${commissionw.app.chat.push.maxConnectionsPerUser:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${commissionw.app.chat.push.timeoutMs:1800000}")
+    private long timeoutMs;
+
+    @Value("${commissionw.app.chat.push.writeTimeoutMs:5000}")
+    private long writeTimeoutMs;
+
+    // Per user in subscription order, oldest first
+    private final Map<String, Deque<Connection>> connections = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor senders;
+
+    public ChatPushService(@Value("${commissionw.app.chat.push.senderThreads:4}") int senderThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-push-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter subscribe(String userId) {
+        Deque<Connection> userConnections = connections.computeIfAbsent(userId, id -> new ConcurrentLinkedDeque<>());
+        if (userConnections.size() >= maxConnectionsPerUser) {
+            // Oldest tabs are the most likely to be abandoned
+            Connection oldest = userConnections.peekFirst();
+            if (oldest != null) {
+                oldest.close(this);
+            }
+        }
+
+        Connection connection = new Connection(userId, new SseEmitter(timeoutMs), bufferSize);
+        connection.emitter.onCompletion(() -> remove(connection));
+        connection.emitter.onTimeout(() -> remove(connection));
+        connection.emitter.onError(e -> remove(connection));
+        userConnections.add(connection);
+
+        connection.offer(SseEmitter.event().name("ready").data("ok"));
+        schedule(connection);
+        return connection.emitter;
+    }
+
+    public void publish(String userId, ChatMessage message) {
+        Deque<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            if (connection.offer(SseEmitter.event().name("message").id(message.getId()).data(message))) {
+                schedule(connection);
+            } else {
+                logger.warn("Chat push buffer full for user {}, dropping slow connection", userId);
+                connection.close(this);
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    // Keeps idle streams from being cut by proxies and detects dead clients
+    @Scheduled(fixedRateString = "${commissionw.app.chat.push.heartbeatMs:25000}")
+    public void heartbeat() {
+        for (Deque<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.offer(SseEmitter.event().comment("ping"))) {
+                    schedule(connection);
+                }
+            }
+        }
+    }
+
+    // Drops connections whose current write is stuck and lends the pool a thread meanwhile
+    @Scheduled(fixedDelayString = "${commissionw.app.chat.push.stallCheckMs:1000}")
+    public void dropStalledWrites() {
+        long now = System.nanoTime();
+        long limit = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        for (Deque<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.lendThreadIfStalled(now, limit, this)) {
+                    logger.warn("Chat push write stalled for user {}, dropping connection", connection.userId);
+                    // Completing the emitter would wait on the stuck write; the sender does it once that returns
+                    remove(connection);
+                    connection.buffer.clear();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(userConnections -> userConnections.forEach(connection -> connection.close(this)));
+        senders.shutdownNow();
+    }
+
+    private void schedule(Connection connection) {
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.buffer.poll()) != null) {
+                connection.sendStarted();
+                try {
+                    connection.emitter.send(event);
+                } finally {
+                    connection.sendFinished(this);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            connection.close(this);
+            return;
+        } finally {
+            connection.draining.set(false);
+        }
+        if (connection.stalled) {
+            connection.close(this);
+            return;
+        }
+        // An offer may have raced the end of the loop
+        if (!connection.buffer.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    // Max before core when growing, core before max when shrinking, so core never exceeds max
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId, (id, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private static final class Connection {
+        final String userId;
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // Guarded by this: start of the send in progress (0 if none), whether
+        // it was found stalled, and whether the pool was lent a thread for it
+        private long sendStartedNanos;
+        volatile boolean stalled;
+        private boolean lentThread;
+
+        Connection(String userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        synchronized void sendStarted() {
+            sendStartedNanos = System.nanoTime();
+        }
+
+        synchronized void sendFinished(ChatPushService service) {
+            sendStartedNanos = 0;
+            if (lentThread) {
+                // The stuck write finally returned; give back the thread lent for it
+                lentThread = false;
+                service.resizeSenders(-1);
+            }
+        }
+
+        synchronized boolean lendThreadIfStalled(long now, long limitNanos, ChatPushService service) {
+            if (stalled || sendStartedNanos == 0 || now - sendStartedNanos <= limitNanos) {
+                return false;
+            }
+            stalled = true;
+            lentThread = true;
+            service.resizeSenders(1);
+            return true;
+        }
+
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            return buffer.offer(event);
+        }
+
+        void close(ChatPushService service) {
+            service.remove(this);
+            buffer.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // already completed
+            }
+        }
+    }
+}
@@ -1,43 +1,129 @@
 package com.commissionw.service;
 
 import com.commissionw.model.ChatMessage;
+import com.commissionw.payload.response.CursorPage;
 import com.commissionw.repository.ChatRepository;
+import com.commissionw.repository.KeysetCursor;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ChatService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String CURSOR_SORT = "CHAT";
+
     @Autowired
     private ChatRepository chatRepository;
 
-    public ChatMessage sendMessage(ChatMessage message) {
+    @Autowired
+    private ChatPushService chatPushService;
+
+    @Autowired
+    private ChatWriteBuffer chatWriteBuffer;
+
+    @Autowired
+    private ChatInboxService chatInboxService;
+
+    public static String conversationId(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0 ? userId1 + "_" + userId2 : userId2 + "_" + userId1;
+    }
+
+    /**
+     * Stores the message and pushes it to both participants. With write-behind
+     * enabled the insert is batched with other messages and the future
+     * completes when the batch is stored; otherwise it completes at once.
+     */
+    public CompletableFuture<ChatMessage> sendMessage(ChatMessage message) {
+        // Assigned here so the message is complete before it is queued
+        message.setId(new ObjectId().toHexString());
         message.setTimestamp(LocalDateTime.now());
-        return chatRepository.save(message);
+        if (message.getReceiverId() != null) {
+            message.setConversationId(conversationId(message.getSenderId(), message.getReceiverId()));
+        }
+
+        if (chatWriteBuffer.isEnabled()) {
+            // The buffer updates the inbox once per flushed batch
+            return chatWriteBuffer.enqueue(message).thenApply(this::publish);
+        }
+        ChatMessage stored = chatRepository.insert(message);
+        recordInInbox(List.of(stored));
+        return CompletableFuture.completedFuture(publish(stored));
+    }
+
+    public Map<String, Object> getWriteStats() {
+        return chatWriteBuffer.stats();
+    }
+
+    /**
+     * Returns the most recent messages between the two users, oldest first,
+     * plus a cursor for the page of older messages before them.
+     */
+    public CursorPage<ChatMessage> getConversation(String userId1, String userId2, String before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String conversationId = conversationId(userId1, userId2);
+        // One extra row tells whether older messages exist
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<ChatMessage> newestFirst;
+        if (before == null || before.isEmpty()) {
+            newestFirst = chatRepository.findLatest(conversationId, page);
+        } else {
+            KeysetCursor cursor = KeysetCursor.decode(before, CURSOR_SORT);
+            try {
+                newestFirst = chatRepository.findBefore(conversationId, LocalDateTime.parse(cursor.value()),
+                        new ObjectId(cursor.id()), page);
+            } catch (DateTimeParseException | NullPointerException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+
+        boolean hasMore = newestFirst.size() > pageSize;
+        List<ChatMessage> messages = new ArrayList<>(hasMore ? newestFirst.subList(0, pageSize) : newestFirst);
+
+        String nextBefore = null;
+        if (hasMore) {
+            ChatMessage oldest = messages.get(messages.size() - 1);
+            nextBefore = new KeysetCursor(CURSOR_SORT, oldest.getTimestamp().toString(), oldest.getId()).encode();
+        }
+
+        Collections.reverse(messages);
+        return new CursorPage<>(messages, nextBefore);
+    }
+
+    private void recordInInbox(List<ChatMessage> messages) {
+        try {
+            chatInboxService.recordMessages(messages);
+        } catch (Exception e) {
+            // The messages themselves are stored; a stale inbox row is not worth failing the send
+            logger.error("Cannot update conversations for {} messages: {}", messages.size(), e.getMessage());
+        }
     }
 
-    public List<ChatMessage> getConversation(String userId1, String userId2) {
-        // This is a simplified fetch. In real app, you might need complex querying
-        // to get messages where (sender=u1 AND receiver=u2) OR (sender=u2 AND
-        // receiver=u1)
-        // For MVP, we will rely on repository method if defined, or simple logic.
-        // Actually, let's use a repository method that finds by sender OR receiver to
-        // get all related.
-        // Better yet, let's filter in memory for MVP or assume the repo does it right.
-
-        // Correct implementation requires a custom query, but let's stick to the repo
-        // method we defined:
-        // findBySenderIdOrReceiverId - this gets ALL messages for a user.
-        // We'll filter for the specific partner in stream.
-
-        List<ChatMessage> allMessages = chatRepository.findBySenderIdOrReceiverId(userId1, userId1);
-
-        return allMessages.stream()
-                .filter(m -> (m.getSenderId().equals(userId2) && m.getReceiverId().equals(userId1)) ||
-                        (m.getSenderId().equals(userId1) && m.getReceiverId().equals(userId2)))
-                .sorted((m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()))
-                .toList();
+    // Runs once the message is durable and in the inbox: live delivery to the
+    // recipient and to the sender's other open windows
+    private ChatMessage publish(ChatMessage message) {
+        if (message.getReceiverId() != null) {
+            chatPushService.publish(message.getReceiverId(), message);
+        }
+        if (!message.getSenderId().equals(message.getReceiverId())) {
+            chatPushService.publish(message.getSenderId(), message);
+        }
+        return message;
     }
 }
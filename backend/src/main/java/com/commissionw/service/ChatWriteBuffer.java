@@ -0,0 +1,232 @@
+package com.commissionw.service;
+
+import com.commissionw.model.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for chat messages. Messages are queued with their id
+ * and timestamp already assigned, and a single flusher thread inserts them
+ * in batches of up to {@code batchSize}, at most {@code flushIntervalMs}
+ * after the first message of the batch arrived. The inbox summaries of a
+ * stored batch are then updated with one bulk write, and each caller's
+ * future completes once its message is durably stored.
+ *
+ * <p>The queue is bounded: when it stays full for {@code offerTimeoutMs} the
+ * message is rejected rather than letting memory grow. On shutdown the
+ * buffer stops accepting messages and flushes whatever is still queued.
+ */
+@Component
+public class ChatWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(ChatWriteBuffer.class);
+
+    private static final long IDLE_POLL_MS = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatInboxService chatInboxService;
+
+    @Value("${commissionw.app.chat.writeBehind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${commissionw.app.chat.writeBehind.batchSize:200}")
+    private int batchSize;
+
+    @Value("${commissionw.app.chat.writeBehind.flushIntervalMs:5}")
+    private long flushIntervalMs;
+
+    @Value("${commissionw.app.chat.writeBehind.offerTimeoutMs:50}")
+    private long offerTimeoutMs;
+
+    @Value("${commissionw.app.chat.writeBehind.drainTimeoutMs:10000}")
+    private long drainTimeoutMs;
+
+    private final BlockingQueue<Pending> queue;
+    private final AtomicLong flushedMessages = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean accepting;
+    private Thread flusher;
+
+    public ChatWriteBuffer(@Value("${commissionw.app.chat.writeBehind.queueCapacity:10000}") int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        accepting = true;
+        flusher = new Thread(this::run, "chat-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the message for the next batch. The returned future completes
+     * with the message once it is stored, or exceptionally if the insert
+     * failed; it fails with {@link RejectedExecutionException} if the buffer
+     * is full or shutting down.
+     */
+    public CompletableFuture<ChatMessage> enqueue(ChatMessage message) {
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        try {
+            if (accepting && queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return pending.future();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Chat write buffer is full"));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("flushedMessages", flushedMessages.get());
+        stats.put("flushedBatches", flushedBatches.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        accepting = false;
+        try {
+            flusher.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("Chat write buffer did not drain in time, {} messages not stored", queue.size());
+        }
+        // Anything left was queued too late or could not be stored in time
+        List<Pending> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        leftover.forEach(pending -> pending.future().completeExceptionally(
+                new RejectedExecutionException("Chat write buffer is shutting down")));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        // Keep going after shutdown starts until everything queued is stored
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Only interrupted if the JVM is going down; store what we have
+                queue.drainTo(batch);
+                flush(batch);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            messages.add(pending.message());
+        }
+        try {
+            mongoTemplate.insert(messages, ChatMessage.class);
+            flushedBatches.incrementAndGet();
+            flushedMessages.addAndGet(messages.size());
+            recordInInbox(messages);
+            batch.forEach(pending -> pending.future().complete(pending.message()));
+        } catch (Exception e) {
+            // The ordered insert stopped at the failing document; retry one by
+            // one so a single bad message does not fail the whole batch
+            logger.warn("Chat batch insert failed, retrying {} messages individually: {}",
+                    messages.size(), e.getMessage());
+            List<Pending> stored = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                if (insertOne(pending)) {
+                    stored.add(pending);
+                }
+            }
+            recordInInbox(stored.stream().map(Pending::message).toList());
+            stored.forEach(pending -> pending.future().complete(pending.message()));
+        }
+    }
+
+    // Fails the caller's future and returns false if the message cannot be stored
+    private boolean insertOne(Pending pending) {
+        try {
+            mongoTemplate.insert(pending.message());
+            flushedMessages.incrementAndGet();
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Stored by the batch insert before it failed
+            return true;
+        } catch (Exception e) {
+            pending.future().completeExceptionally(e);
+            return false;
+        }
+    }
+
+    private void recordInInbox(List<ChatMessage> messages) {
+        try {
+            chatInboxService.recordMessages(messages);
+        } catch (Exception e) {
+            // The messages themselves are stored; a stale inbox row is not worth failing the sends
+            logger.error("Cannot update conversations for {} messages: {}", messages.size(), e.getMessage());
+        }
+    }
+
+    private record Pending(ChatMessage message, CompletableFuture<ChatMessage> future) {
+    }
+}
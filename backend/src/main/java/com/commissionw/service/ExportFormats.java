@@ -0,0 +1,27 @@
+package com.commissionw.service;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Response types and download names shared by the export endpoints.
+ */
+public final class ExportFormats {
+
+    public static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private ExportFormats() {
+    }
+
+    // e.g. attachment; filename="orders-2024-05-01.csv"
+    public static String attachment(String name, boolean csv) {
+        return ContentDisposition.attachment()
+                .filename(name + "-" + LocalDate.now() + (csv ? ".csv" : ".ndjson"))
+                .build()
+                .toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Order;
+import com.commissionw.model.Product;
+import com.commissionw.payload.request.OrderFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * CSV and NDJSON exports that read from a Mongo cursor and write each row
+ * to the response as it arrives. Only the cursor's current batch is held in
+ * memory, however many documents are exported.
+ */
+@Service
+public class ExportService {
+    private static final List<String> ORDER_COLUMNS = List.of("id", "createdAt", "updatedAt", "userId", "username",
+            "email", "phone", "status", "paymentMethod", "paymentStatus", "totalAmount", "itemCount", "units",
+            "shippingName", "shippingCity");
+
+    private static final List<String> PRODUCT_COLUMNS = List.of("id", "title", "artist", "price", "category",
+            "status", "imageUrl", "description");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${commissionw.app.export.flushEvery:500}")
+    private int flushEvery;
+
+    @Value("${commissionw.app.export.cursorBatchSize:500}")
+    private int cursorBatchSize;
+
+    public StreamingResponseBody exportOrders(OrderFilter filter, boolean csv) {
+        Query query = new Query();
+        if (filter.getStatus() != null) {
+            query.addCriteria(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (filter.getFrom() != null) {
+                createdAt = createdAt.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                createdAt = createdAt.lt(filter.getTo());
+            }
+            query.addCriteria(createdAt);
+        }
+        // Served by the (createdAt, _id) index
+        query.with(Sort.by(Sort.Direction.ASC, "createdAt", "id"));
+        return export(query, Order.class, csv, ORDER_COLUMNS, ExportService::orderRow);
+    }
+
+    public StreamingResponseBody exportProducts(boolean csv) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "id"));
+        return export(query, Product.class, csv, PRODUCT_COLUMNS, product -> Arrays.asList(
+                product.getId(), product.getTitle(), product.getArtist(), product.getPrice(),
+                product.getCategory(), product.getStatus(), product.getImageUrl(), product.getDescription()));
+    }
+
+    private <T> StreamingResponseBody export(Query query, Class<T> type, boolean csv, List<String> columns,
+            Function<T, List<Object>> row) {
+        query.cursorBatchSize(cursorBatchSize);
+        return outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+            if (csv) {
+                // BOM so spreadsheet programs read the file as UTF-8
+                out.write(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+                writeCsvLine(out, columns);
+            }
+            try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+                int[] written = { 0 };
+                documents.forEach(document -> {
+                    try {
+                        if (csv) {
+                            writeCsvLine(out, row.apply(document));
+                        } else {
+                            out.write(objectMapper.writeValueAsBytes(document));
+                            out.write('\n');
+                        }
+                        if (++written[0] % flushEvery == 0) {
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        // Client went away; closing the stream closes the cursor
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+    }
+
+    private static List<Object> orderRow(Order order) {
+        long units = 0;
+        List<Order.OrderItem> items = order.getItems() != null ? order.getItems() : List.of();
+        for (Order.OrderItem item : items) {
+            units += item.getQuantity() != null ? item.getQuantity() : 1;
+        }
+        Order.ShippingAddress shipping = order.getShippingAddress();
+        return Arrays.asList(order.getId(), order.getCreatedAt(), order.getUpdatedAt(), order.getUserId(),
+                order.getUsername(), order.getEmail(), order.getPhone(), order.getStatus(), order.getPaymentMethod(),
+                order.getPaymentStatus(), order.getTotalAmount(), items.size(), units,
+                shipping != null ? shipping.getFullName() : null, shipping != null ? shipping.getCity() : null);
+    }
+
+    private static void writeCsvLine(OutputStream out, List<?> values) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(csvField(values.get(i)));
+        }
+        line.append("\r\n");
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Text that a spreadsheet would run as a formula is prefixed with a quote
+        if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,117 @@
+package com.commissionw.service;
+
+import com.commissionw.config.HttpCaching;
+import com.commissionw.model.HomeSettings;
+import com.commissionw.repository.HomeSettingsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the landing-page settings as an immutable, pre-serialized snapshot.
+ * Reads never touch Mongo; an update saves the document and swaps in a new
+ * snapshot atomically.
+ */
+@Service
+@DependsOn("versionFieldBackfill")
+public class HomeSettingsService {
+
+    @Autowired
+    private HomeSettingsRepository homeSettingsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    @PostConstruct
+    public void reload() {
+        current.set(snapshotOf(loadHomeSettings()));
+    }
+
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    public synchronized Snapshot update(HomeSettings newSettings) {
+        try {
+            return apply(current.get().settings(), newSettings);
+        } catch (OptimisticLockingFailureException e) {
+            // Changed elsewhere since our snapshot was taken: start from the stored copy
+            return apply(loadHomeSettings(), newSettings);
+        }
+    }
+
+    private Snapshot apply(HomeSettings base, HomeSettings newSettings) {
+        HomeSettings settings = copyOf(base);
+        if (settings.getId() == null) {
+            // Only the built-in defaults so far; create the document
+            settings = new HomeSettings();
+        }
+        settings.setHeroImageUrl(newSettings.getHeroImageUrl());
+        settings.setFeaturedImageUrls(newSettings.getFeaturedImageUrls());
+
+        Snapshot snapshot = snapshotOf(homeSettingsRepository.save(settings));
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    private HomeSettings loadHomeSettings() {
+        // Always use the first (and only) settings document
+        List<HomeSettings> allSettings = homeSettingsRepository.findAll();
+
+        if (allSettings.isEmpty()) {
+            // Default settings if none exist
+            HomeSettings defaultSettings = new HomeSettings();
+            defaultSettings.setHeroImageUrl("https://images.unsplash.com/photo-1579783900882-c0d3dad7b119?w=1000");
+
+            List<String> defaultFeatured = new ArrayList<>();
+            defaultFeatured.add("https://images.unsplash.com/photo-1516905041604-7935af78f572?w=800");
+            defaultFeatured.add("https://images.unsplash.com/photo-1549490349-8643362247b5?w=800");
+            defaultFeatured.add("https://images.unsplash.com/photo-1541963463532-d68292c34b19?w=800");
+            defaultFeatured.add("https://images.unsplash.com/photo-1579783902614-a3fb3927b6a5?w=800");
+            defaultSettings.setFeaturedImageUrls(defaultFeatured);
+
+            return defaultSettings;
+        }
+
+        return allSettings.get(0);
+    }
+
+    private Snapshot snapshotOf(HomeSettings settings) {
+        HomeSettings copy = copyOf(settings);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(copy);
+            String etag = copy.getId() == null ? "\"h-default\""
+                    : HttpCaching.versionTag("h", copy.getId(), copy.getVersion());
+            return new Snapshot(copy, json, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize home settings", e);
+        }
+    }
+
+    private static HomeSettings copyOf(HomeSettings settings) {
+        HomeSettings copy = new HomeSettings();
+        copy.setId(settings.getId());
+        copy.setVersion(settings.getVersion());
+        copy.setHeroImageUrl(settings.getHeroImageUrl());
+        copy.setFeaturedImageUrls(settings.getFeaturedImageUrls() == null ? List.of()
+                : Collections.unmodifiableList(new ArrayList<>(settings.getFeaturedImageUrls())));
+        return copy;
+    }
+
+    /**
+     * Never mutated after construction; the json array must not be written to.
+     */
+    public record Snapshot(HomeSettings settings, byte[] json, String etag) {
+    }
+}
@@ -0,0 +1,362 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized copies of uploaded images in the background and records
+ * them on the products that use the image. Work runs on a small bounded pool
+ * so it never competes with request threads for more than a couple of cores;
+ * when the queue is full the job is dropped and regenerated on next use.
+ * Images with more than {@code maxSourcePixels} pixels are served as
+ * uploaded and never decoded.
+ */
+@Service
+public class ImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    public static final int[] WIDTHS = { 320, 640, 1280 };
+    private static final int PLACEHOLDER_WIDTH = 16;
+    private static final String PLACEHOLDER_SUFFIX = "-lqip.jpg";
+    // Upper bound on decoded pixels, whatever the aspect ratio (~32 MB as RGB)
+    private static final long DECODE_PIXEL_BUDGET = 8_000_000L;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Lazy: ProductService also depends on this service
+    @Autowired
+    @Lazy
+    private ProductService productService;
+
+    private final ThreadPoolExecutor executor;
+    private final long maxSourcePixels;
+    // Recently used derivatives, LRU; anything evicted is found again on disk
+    private final LinkedHashMap<String, Derivatives> known;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(@Value("${commissionw.app.images.derivativeThreads:2}") int threads,
+            @Value("${commissionw.app.images.derivativeQueue:64}") int queueCapacity,
+            @Value("${commissionw.app.images.maxSourcePixels:100000000}") long maxSourcePixels,
+            @Value("${commissionw.app.images.knownCacheSize:2000}") int knownCacheSize) {
+        this.maxSourcePixels = maxSourcePixels;
+        this.known = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Derivatives> eldest) {
+                return size() > knownCacheSize;
+            }
+        };
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues derivative generation for an uploaded image and returns at once.
+     */
+    public void submit(String imageUrl) {
+        if (localPath(imageUrl) == null || cached(imageUrl) != null || !inFlight.add(imageUrl)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(imageUrl).ifPresent(derivatives -> {
+                        remember(imageUrl, derivatives);
+                        attachToProducts(imageUrl, derivatives);
+                    });
+                } catch (Exception e) {
+                    logger.error("Cannot generate derivatives for {}: {}", imageUrl, e.getMessage());
+                } finally {
+                    inFlight.remove(imageUrl);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full or shutting down; the next lookup will queue it again
+            inFlight.remove(imageUrl);
+            logger.warn("Image derivative queue full, skipping {}", imageUrl);
+        }
+    }
+
+    /**
+     * Derivatives already generated for the image, looking on disk if this
+     * process has not produced them itself. Queues generation if none exist.
+     */
+    public Optional<Derivatives> find(String imageUrl) {
+        Derivatives derivatives = cached(imageUrl);
+        if (derivatives != null) {
+            return Optional.of(derivatives);
+        }
+        Path original = localPath(imageUrl);
+        if (original == null) {
+            return Optional.empty();
+        }
+        Path placeholder = siblingPath(original, PLACEHOLDER_SUFFIX);
+        if (!Files.exists(placeholder)) {
+            submit(imageUrl);
+            return Optional.empty();
+        }
+        try {
+            Dimension size = sizeOf(original);
+            if (size == null) {
+                return Optional.empty();
+            }
+            int originalWidth = size.width;
+            List<Product.ImageVariant> variants = new ArrayList<>();
+            for (int width : WIDTHS) {
+                Path variant = siblingPath(original, "-" + width + "w.jpg");
+                if (width < originalWidth && Files.exists(variant)) {
+                    variants.add(new Product.ImageVariant(width, urlOf(variant)));
+                }
+            }
+            variants.add(new Product.ImageVariant(originalWidth, imageUrl));
+            derivatives = new Derivatives(variants, dataUri(Files.readAllBytes(placeholder)));
+            remember(imageUrl, derivatives);
+            return Optional.of(derivatives);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Optional<Derivatives> generate(String imageUrl) throws IOException {
+        Path original = localPath(imageUrl);
+        Dimension size = sizeOf(original);
+        if (size == null) {
+            // Not a format ImageIO can decode (e.g. webp); serve the original only
+            return Optional.empty();
+        }
+        if ((long) size.width * size.height > maxSourcePixels) {
+            logger.warn("Image {} is {}x{}, over the {} pixel limit; serving the original only",
+                    imageUrl, size.width, size.height, maxSourcePixels);
+            return Optional.empty();
+        }
+        int originalWidth = size.width;
+        BufferedImage image = decodeSubsampled(original, size, largestWidthBelow(originalWidth));
+        if (image == null) {
+            return Optional.empty();
+        }
+
+        List<Product.ImageVariant> variants = new ArrayList<>();
+        for (int width : WIDTHS) {
+            if (width >= originalWidth) {
+                continue;
+            }
+            Path target = siblingPath(original, "-" + width + "w.jpg");
+            if (!Files.exists(target)) {
+                writeJpeg(resize(image, width), target);
+            }
+            variants.add(new Product.ImageVariant(width, urlOf(target)));
+        }
+        variants.add(new Product.ImageVariant(originalWidth, imageUrl));
+
+        Path placeholder = siblingPath(original, PLACEHOLDER_SUFFIX);
+        writeJpeg(resize(image, PLACEHOLDER_WIDTH), placeholder);
+
+        return Optional.of(new Derivatives(variants, dataUri(Files.readAllBytes(placeholder))));
+    }
+
+    // Conditional on imageUrl per product: one whose image was replaced since
+    // the job was queued keeps its own variants
+    private void attachToProducts(String imageUrl, Derivatives derivatives) {
+        Query query = new Query(Criteria.where("imageUrl").is(imageUrl));
+        query.fields().include("id");
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            long modified = mongoTemplate.updateFirst(
+                    new Query(Criteria.where("id").is(product.getId()).and("imageUrl").is(imageUrl)),
+                    new Update().set("imageVariants", derivatives.variants())
+                            .set("imagePlaceholder", derivatives.placeholder())
+                            .inc("version", 1),
+                    Product.class).getModifiedCount();
+            if (modified > 0) {
+                productService.refreshFromStore(product.getId());
+            }
+        }
+    }
+
+    private Derivatives cached(String imageUrl) {
+        synchronized (known) {
+            return known.get(imageUrl);
+        }
+    }
+
+    private void remember(String imageUrl, Derivatives derivatives) {
+        synchronized (known) {
+            known.put(imageUrl, derivatives);
+        }
+    }
+
+    private static int largestWidthBelow(int originalWidth) {
+        int largest = PLACEHOLDER_WIDTH;
+        for (int width : WIDTHS) {
+            if (width < originalWidth) {
+                largest = Math.max(largest, width);
+            }
+        }
+        return largest;
+    }
+
+    // Decodes every n-th pixel so the image is still at least twice the largest
+    // target width, and never more than the pixel budget: a narrow but very
+    // tall upload is subsampled by its area, not its width
+    private static BufferedImage decodeSubsampled(Path image, Dimension size, int targetWidth) throws IOException {
+        long pixels = (long) size.width * size.height;
+        int byArea = (int) Math.ceil(Math.sqrt((double) pixels / DECODE_PIXEL_BUDGET));
+        int step = Math.max(1, Math.max(size.width / (2 * targetWidth), byArea));
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halve repeatedly, then finish with one bilinear step: cheap and avoids aliasing
+    private static BufferedImage resize(BufferedImage source, int targetWidth) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(width / 2, targetWidth);
+            height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // Flatten any transparency onto white, JPEG has no alpha
+            g.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            g.dispose();
+            current = next;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    // Reads the header only; decoding a large scan just for its size is wasteful.
+    // Null if ImageIO cannot read the format.
+    private static Dimension sizeOf(Path image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                return width > 0 && height > 0 ? new Dimension(width, height) : null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".derivative-", ".tmp");
+        try {
+            ImageIO.write(image, "jpg", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path localPath(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(ImageStorageService.URL_PREFIX)) {
+            return null;
+        }
+        String filename = imageUrl.substring(ImageStorageService.URL_PREFIX.length());
+        if (filename.isEmpty() || filename.contains("/") || filename.contains("..")) {
+            return null;
+        }
+        return Paths.get(ImageStorageService.UPLOAD_DIR, filename);
+    }
+
+    private static Path siblingPath(Path original, String suffix) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + suffix);
+    }
+
+    private static String urlOf(Path path) {
+        return ImageStorageService.URL_PREFIX + path.getFileName();
+    }
+
+    private static String dataUri(byte[] jpeg) {
+        return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg);
+    }
+
+    public record Derivatives(List<Product.ImageVariant> variants, String placeholder) {
+    }
+}
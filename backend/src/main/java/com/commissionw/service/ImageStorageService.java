@@ -0,0 +1,90 @@
+package com.commissionw.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploaded images under a name derived from their SHA-256, so the
+ * same file uploaded twice is kept once. The upload is streamed to disk and
+ * hashed on the way; it is never held in memory as a whole.
+ */
+@Service
+public class ImageStorageService {
+
+    public static final String UPLOAD_DIR = "uploads/images/";
+    public static final String URL_PREFIX = "/uploads/images/";
+
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("\\.[a-z0-9]{1,8}");
+    private static final long CHUNK = 1 << 20;
+
+    public StoredImage store(MultipartFile file) throws IOException {
+        Path dir = Paths.get(UPLOAD_DIR);
+        Files.createDirectories(dir);
+
+        // Temp file in the same directory so the final move is a rename
+        Path temp = Files.createTempFile(dir, ".upload-", ".tmp");
+        try {
+            MessageDigest sha256 = newSha256();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256);
+                    ReadableByteChannel source = Channels.newChannel(in);
+                    FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, CHUNK)) > 0) {
+                    position += transferred;
+                }
+                size = position;
+            }
+
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            String filename = hash + extensionOf(file.getOriginalFilename());
+            Path finalPath = dir.resolve(filename);
+
+            boolean duplicate = Files.exists(finalPath);
+            if (!duplicate) {
+                // Same name means same bytes, so losing a race to an identical upload is harmless
+                Files.move(temp, finalPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredImage(URL_PREFIX + filename, hash, size, duplicate);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+        return SAFE_EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record StoredImage(String url, String sha256, long size, boolean duplicate) {
+    }
+}
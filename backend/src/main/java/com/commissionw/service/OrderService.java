@@ -1,19 +1,74 @@
 package com.commissionw.service;
 
 import com.commissionw.model.Order;
+import com.commissionw.payload.request.OrderFilter;
+import com.commissionw.payload.request.OrderStatusChange;
+import com.commissionw.payload.response.CursorPage;
+import com.commissionw.payload.response.OrderSummary;
+import com.commissionw.repository.KeysetCursor;
 import com.commissionw.repository.OrderRepository;
+import com.commissionw.repository.OrderRepositoryImpl;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Order statuses at which the reserved products count as sold
+    private static final Set<String> SOLD_STATUSES = Set.of("confirmed", "shipping", "delivered");
+
+    // Allowed next values per current value. Delivered and cancelled orders,
+    // and paid payments, are final: anything else is rejected with 409.
+    private static final Map<String, Set<String>> STATUS_TRANSITIONS = Map.of(
+            "pending", Set.of("confirmed", "cancelled"),
+            "confirmed", Set.of("shipping", "cancelled"),
+            "shipping", Set.of("delivered"),
+            "delivered", Set.of(),
+            "cancelled", Set.of());
+    private static final Map<String, Set<String>> PAYMENT_TRANSITIONS = Map.of(
+            "pending", Set.of("paid", "failed"),
+            "failed", Set.of("pending", "paid"),
+            "paid", Set.of());
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductReservationService reservationService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ProductService productService;
+
     public Order createOrder(Order order) {
+        order.setVersion(null);
         order.setCreatedAt(LocalDateTime.now());
 
         // Mock Payment Logic
@@ -26,6 +81,36 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    /**
+     * Places an order after reserving every product in it; nothing is saved
+     * and nothing stays reserved if any product is already taken (409).
+     */
+    public Order placeOrder(Order order) {
+        // The id is assigned first so the reservations can point at the order
+        order.setId(new ObjectId().toHexString());
+        order.setVersion(null);
+        List<String> productIds = order.getItems().stream()
+                .map(Order.OrderItem::getProductId)
+                .filter(Objects::nonNull)
+                .toList();
+
+        reservationService.reserve(order.getId(), order.getPaymentMethod(), productIds);
+        Order saved;
+        try {
+            snapshotProductLabels(order);
+            // Stamped just before the insert: a rollup rebuild tells new orders apart by this time
+            LocalDateTime now = LocalDateTime.now();
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            saved = mongoTemplate.insert(order);
+        } catch (RuntimeException e) {
+            reservationService.release(order.getId());
+            throw e;
+        }
+        salesRollupService.recordCreated(saved);
+        return saved;
+    }
+
     public List<Order> getOrdersByUserId(String userId) {
         return orderRepository.findByUserId(userId);
     }
@@ -34,9 +119,287 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
-    public Order updateOrderStatus(String orderId, String status) {
-        Order order = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(status);
-        return orderRepository.save(order);
+    /**
+     * One page of order summaries, newest first. {@code cursor} is the
+     * nextCursor of the previous page, or null for the first page.
+     */
+    public CursorPage<OrderSummary> getOrderPage(OrderFilter filter, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetCursor after = cursor == null || cursor.isEmpty()
+                ? null
+                : KeysetCursor.decode(cursor, OrderRepositoryImpl.CURSOR_SORT);
+
+        // Fetch one extra row to learn whether another page exists
+        List<Order> rows = orderRepository.findPage(filter, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = rows.get(rows.size() - 1);
+            String createdAt = last.getCreatedAt() != null ? last.getCreatedAt().toString() : null;
+            nextCursor = new KeysetCursor(OrderRepositoryImpl.CURSOR_SORT, createdAt, last.getId()).encode();
+        }
+
+        return new CursorPage<>(rows.stream().map(OrderSummary::from).toList(), nextCursor);
+    }
+
+    /**
+     * Sets the order status in one conditional findAndModify and returns the
+     * updated order. {@code expectedVersion} is required (428 without it):
+     * the update only applies if the stored order still has that version,
+     * so two admins acting on the same order cannot silently overwrite each
+     * other. The move must be allowed by {@link #STATUS_TRANSITIONS};
+     * {@code expectedStatus} is an optional extra guard.
+     */
+    public Order updateOrderStatus(String orderId, String status, String expectedStatus, Long expectedVersion) {
+        requireVersion(expectedVersion);
+        List<String> allowed = new ArrayList<>(sourcesOf(STATUS_TRANSITIONS, status, "status"));
+        if (expectedStatus != null) {
+            allowed.retainAll(List.of(expectedStatus));
+        }
+        Criteria guard = Criteria.where("id").is(orderId).and("status").in(allowed);
+        Order updated = transition(guard, expectedVersion, new Update().set("status", status),
+                order -> order.setStatus(status));
+        if (updated == null) {
+            throw rejected(currentState(orderId), expectedVersion, "status", status);
+        }
+        settleReservation(updated);
+        return updated;
+    }
+
+    /**
+     * Sets the payment status; the version is required and the move must be
+     * allowed by {@link #PAYMENT_TRANSITIONS}, as in
+     * {@link #updateOrderStatus(String, String, String, Long)}.
+     */
+    public Order updatePaymentStatus(String orderId, String paymentStatus, String expectedPaymentStatus,
+            Long expectedVersion) {
+        requireVersion(expectedVersion);
+        List<String> allowed = new ArrayList<>(sourcesOf(PAYMENT_TRANSITIONS, paymentStatus, "paymentStatus"));
+        if (expectedPaymentStatus != null) {
+            allowed.retainAll(List.of(expectedPaymentStatus));
+        }
+        if (allowed.contains("pending")) {
+            // Orders placed before payment tracking have no payment status
+            allowed.add(null);
+        }
+        // A cancelled order's products may already be released or sold to someone else
+        Criteria guard = Criteria.where("id").is(orderId).and("paymentStatus").in(allowed)
+                .and("status").ne("cancelled");
+        Order updated = transition(guard, expectedVersion, new Update().set("paymentStatus", paymentStatus),
+                order -> order.setPaymentStatus(paymentStatus));
+        if (updated == null) {
+            throw rejected(currentState(orderId), expectedVersion, "paymentStatus", paymentStatus);
+        }
+        settleReservation(updated);
+        return updated;
+    }
+
+    /**
+     * Applies a batch of status changes with one unordered bulk write. Each
+     * change needs the version the caller last saw and an allowed transition,
+     * and is guarded by the version read just before, so it behaves like
+     * {@link #updateOrderStatus(String, String, String, Long)} per order but
+     * costs three round trips for the whole batch. The result has one entry
+     * per change: null if applied, otherwise the reason it was not.
+     */
+    public List<String> applyStatusChanges(List<OrderStatusChange> changes) {
+        Map<String, Order> before = stateOf(changes.stream().map(OrderStatusChange::getId)
+                .filter(Objects::nonNull).toList());
+
+        String[] errors = new String[changes.size()];
+        Set<String> seen = new HashSet<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        boolean anyWrite = false;
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < changes.size(); i++) {
+            OrderStatusChange change = changes.get(i);
+            Order current = change.getId() != null ? before.get(change.getId()) : null;
+            if (change.getId() == null || change.getStatus() == null || change.getVersion() == null) {
+                errors[i] = "id, status and version are required";
+            } else if (!STATUS_TRANSITIONS.containsKey(change.getStatus())) {
+                errors[i] = "Unknown status: " + change.getStatus();
+            } else if (!seen.add(change.getId())) {
+                errors[i] = "Order appears more than once in the batch";
+            } else if (current == null) {
+                errors[i] = "Order not found";
+            } else if ((change.getExpectedStatus() != null && !change.getExpectedStatus().equals(current.getStatus()))
+                    || !change.getVersion().equals(current.getVersion())) {
+                errors[i] = conflict(current).getReason();
+            } else if (!isAllowed(STATUS_TRANSITIONS, current.getStatus(), change.getStatus())) {
+                errors[i] = notAllowed("status", current.getStatus(), change.getStatus()).getReason();
+            } else {
+                bulk.updateOne(
+                        new Query(Criteria.where("id").is(change.getId()).and("version").is(current.getVersion())
+                                .and("status").is(current.getStatus())),
+                        new Update().set("status", change.getStatus()).set("updatedAt", now).inc("version", 1));
+                anyWrite = true;
+            }
+        }
+        if (!anyWrite) {
+            return Arrays.asList(errors);
+        }
+        bulk.execute();
+
+        // The bulk result only has totals; compare versions to see which rows applied
+        Map<String, Order> after = stateOf(new ArrayList<>(seen));
+        for (int i = 0; i < changes.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            OrderStatusChange change = changes.get(i);
+            Order previous = before.get(change.getId());
+            Order updated = after.get(change.getId());
+            long expectedVersion = (previous.getVersion() != null ? previous.getVersion() : 0) + 1;
+            if (updated != null && updated.getVersion() != null && updated.getVersion() == expectedVersion
+                    && change.getStatus().equals(updated.getStatus())) {
+                String previousStatus = previous.getStatus();
+                previous.setStatus(updated.getStatus());
+                previous.setUpdatedAt(now);
+                salesRollupService.recordTransition(previous, previousStatus, previous.getPaymentStatus());
+                settleReservation(updated);
+            } else {
+                errors[i] = updated != null ? conflict(updated).getReason() : "Order not found";
+            }
+        }
+        return Arrays.asList(errors);
+    }
+
+    /**
+     * Cancels the user's own order if it is still pending.
+     */
+    public Order cancelOrder(String orderId, String userId) {
+        Criteria guard = Criteria.where("id").is(orderId).and("userId").is(userId).and("status").is("pending");
+        Order updated = transition(guard, null, new Update().set("status", "cancelled"),
+                order -> order.setStatus("cancelled"));
+        if (updated == null) {
+            Order order = currentState(orderId);
+            if (!userId.equals(order.getUserId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot cancel order with status: " + order.getStatus());
+        }
+        reservationService.release(orderId);
+        return updated;
+    }
+
+    // A cancelled order frees its products; a paid or confirmed one sells them
+    private void settleReservation(Order order) {
+        if ("cancelled".equals(order.getStatus())) {
+            reservationService.release(order.getId());
+        } else if ("paid".equals(order.getPaymentStatus()) || SOLD_STATUSES.contains(order.getStatus())) {
+            reservationService.finalizeSale(order.getId());
+        }
+    }
+
+    // Applies the update only if the guard still matches, bumping version and
+    // updatedAt in the same write; null if the guard did not match. The
+    // write returns the previous document, which the rollups need; the new
+    // state is derived from it in memory with {@code apply}.
+    private Order transition(Criteria guard, Long expectedVersion, Update update, Consumer<Order> apply) {
+        if (expectedVersion != null) {
+            guard.and("version").is(expectedVersion);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        update.set("updatedAt", now).inc("version", 1);
+        Order order = mongoTemplate.findAndModify(new Query(guard), update,
+                FindAndModifyOptions.options().returnNew(false), Order.class);
+        if (order == null) {
+            return null;
+        }
+
+        String previousStatus = order.getStatus();
+        String previousPaymentStatus = order.getPaymentStatus();
+        apply.accept(order);
+        order.setUpdatedAt(now);
+        order.setVersion(order.getVersion() != null ? order.getVersion() + 1 : 1);
+        salesRollupService.recordTransition(order, previousStatus, previousPaymentStatus);
+        return order;
+    }
+
+    // Artist and category as they are now, so later reports do not depend on
+    // the product still existing or keeping its category
+    private void snapshotProductLabels(Order order) {
+        for (Order.OrderItem item : order.getItems()) {
+            if (item.getProductId() == null) {
+                continue;
+            }
+            productService.getProductById(item.getProductId()).ifPresent(product -> {
+                item.setArtist(product.getArtist());
+                item.setCategory(product.getCategory());
+            });
+        }
+    }
+
+    private Map<String, Order> stateOf(List<String> orderIds) {
+        Query query = new Query(Criteria.where("id").in(orderIds));
+        // Amounts and items are for the rollups
+        query.fields().include("status", "paymentStatus", "version", "createdAt", "totalAmount", "items");
+        Map<String, Order> state = new HashMap<>();
+        mongoTemplate.find(query, Order.class).forEach(order -> state.put(order.getId(), order));
+        return state;
+    }
+
+    // Only read when a transition did not apply, to explain why
+    private Order currentState(String orderId) {
+        Query query = new Query(Criteria.where("id").is(orderId));
+        query.fields().include("userId", "status", "paymentStatus", "version");
+        Order order = mongoTemplate.findOne(query, Order.class);
+        if (order == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found");
+        }
+        return order;
+    }
+
+    private static void requireVersion(Long expectedVersion) {
+        if (expectedVersion == null) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED,
+                    "version is required: send the version of the order you are changing");
+        }
+    }
+
+    // Current values from which the table allows moving to target
+    private static Set<String> sourcesOf(Map<String, Set<String>> table, String target, String field) {
+        if (target == null || !table.containsKey(target)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown " + field + ": " + target);
+        }
+        Set<String> sources = new HashSet<>();
+        table.forEach((from, to) -> {
+            if (to.contains(target)) {
+                sources.add(from);
+            }
+        });
+        return sources;
+    }
+
+    private static boolean isAllowed(Map<String, Set<String>> table, String from, String to) {
+        return table.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    // Why a guarded transition did not apply: stale version, or a move the table forbids
+    private static ResponseStatusException rejected(Order current, Long expectedVersion, String field, String target) {
+        if (!expectedVersion.equals(current.getVersion())) {
+            return conflict(current);
+        }
+        if ("cancelled".equals(current.getStatus())) {
+            return new ResponseStatusException(HttpStatus.CONFLICT, "Order is cancelled and can no longer change");
+        }
+        String from = "status".equals(field) ? current.getStatus() : current.getPaymentStatus();
+        return notAllowed(field, from, target);
+    }
+
+    private static ResponseStatusException notAllowed(String field, String from, String to) {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Cannot change " + field + " from " + from + " to " + to);
+    }
+
+    private static ResponseStatusException conflict(Order current) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Order was changed concurrently (status: "
+                + current.getStatus() + ", paymentStatus: " + current.getPaymentStatus()
+                + ", version: " + current.getVersion() + ")");
     }
 }
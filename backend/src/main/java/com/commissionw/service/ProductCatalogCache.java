@@ -0,0 +1,195 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of the product collection: single products by
+ * id plus materialized category and full-catalog lists. Bounded by an
+ * estimate of the retained heap, evicting least recently used entries first.
+ * ProductService invalidates exactly the entries a write can affect.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final String ALL_KEY = "all";
+    private static final String ID_PREFIX = "id:";
+    private static final String CATEGORY_PREFIX = "cat:";
+
+    @Value("${commissionw.app.catalogCache.maxBytes:16777216}")
+    private long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    // Bumped on every invalidation so a load that raced a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public Optional<Product> getProduct(String id, Supplier<Optional<Product>> loader) {
+        Object cached = lookup(ID_PREFIX + id);
+        if (cached != null) {
+            return Optional.of((Product) cached);
+        }
+        long startGeneration = generation.get();
+        Optional<Product> loaded = loader.get();
+        loaded.ifPresent(product -> store(ID_PREFIX + id, product, weigh(product), startGeneration));
+        return loaded;
+    }
+
+    public List<Product> getAll(Supplier<List<Product>> loader) {
+        return getList(ALL_KEY, loader);
+    }
+
+    public List<Product> getCategory(String category, Supplier<List<Product>> loader) {
+        return getList(CATEGORY_PREFIX + category, loader);
+    }
+
+    /**
+     * Drops the product and every list that contained or should now contain
+     * it. Pass the category before and after the write (either may be null).
+     */
+    public void invalidateProduct(String id, String oldCategory, String newCategory) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            remove(ID_PREFIX + id);
+            remove(ALL_KEY);
+            if (oldCategory != null) {
+                remove(CATEGORY_PREFIX + oldCategory);
+            }
+            if (newCategory != null) {
+                remove(CATEGORY_PREFIX + newCategory);
+            }
+        }
+    }
+
+    // For changes whose previous category is unknown, e.g. from another node
+    public void invalidateProductAndLists(String id) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            remove(ID_PREFIX + id);
+            entries.entrySet().removeIf(entry -> {
+                boolean list = !entry.getKey().startsWith(ID_PREFIX);
+                if (list) {
+                    currentBytes -= entry.getValue().weight;
+                    invalidations.increment();
+                }
+                return list;
+            });
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            invalidations.add(entries.size());
+            entries.clear();
+            currentBytes = 0;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (entries) {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long requests = hitCount + missCount;
+            return Map.of(
+                    "hits", hitCount,
+                    "misses", missCount,
+                    "hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests,
+                    "evictions", evictions.sum(),
+                    "invalidations", invalidations.sum(),
+                    "entries", entries.size(),
+                    "estimatedBytes", currentBytes,
+                    "maxBytes", maxBytes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Product> getList(String key, Supplier<List<Product>> loader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (List<Product>) cached;
+        }
+        long startGeneration = generation.get();
+        List<Product> loaded = List.copyOf(loader.get());
+        long weight = 64;
+        for (Product product : loaded) {
+            weight += weigh(product);
+        }
+        store(key, loaded, weight, startGeneration);
+        return loaded;
+    }
+
+    private Object lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(String key, Object value, long weight, long startGeneration) {
+        if (weight > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation.get() != startGeneration) {
+                return;
+            }
+            Entry previous = entries.put(key, new Entry(value, weight));
+            if (previous != null) {
+                currentBytes -= previous.weight;
+            }
+            currentBytes += weight;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                currentBytes -= victim.getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.weight;
+            invalidations.increment();
+        }
+    }
+
+    // Rough retained size: object headers plus two bytes per character
+    private static long weigh(Product product) {
+        return 96 + 2L * (length(product.getId()) + length(product.getTitle()) + length(product.getArtist())
+                + length(product.getDescription()) + length(product.getCategory())
+                + length(product.getImageUrl()) + length(product.getStatus()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private record Entry(Object value, long weight) {
+    }
+}
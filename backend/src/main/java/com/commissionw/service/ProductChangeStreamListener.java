@@ -0,0 +1,77 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the catalog cache and search indexes of this node coherent with
+ * writes made by other nodes. Change streams need a replica set (a single
+ * node replica set is enough), so this is off unless
+ * {@code commissionw.app.catalogCache.changeStream.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "commissionw.app.catalogCache.changeStream.enabled", havingValue = "true")
+public class ProductChangeStreamListener {
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeStreamListener.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    private MessageListenerContainer container;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        MessageListener<ChangeStreamDocument<Document>, Document> listener = message -> onChange(message.getRaw());
+        ChangeStreamRequest<Document> request = ChangeStreamRequest.builder(listener)
+                .collection(mongoTemplate.getCollectionName(Product.class))
+                .build();
+        container.register(request, Document.class,
+                e -> logger.error("Product change stream failed: {}", e.getMessage()));
+        container.start();
+        logger.info("Listening for product changes from other nodes");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    private void onChange(ChangeStreamDocument<Document> event) {
+        if (event == null) {
+            return;
+        }
+        BsonDocument key = event.getDocumentKey();
+        if (key == null) {
+            // drop / invalidate events: nothing reliable to refresh by id
+            return;
+        }
+        BsonValue id = key.get("_id");
+        if (id == null) {
+            return;
+        }
+        String productId = id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+        productService.refreshFromStore(productId);
+    }
+}
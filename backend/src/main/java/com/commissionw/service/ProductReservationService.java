@@ -0,0 +1,198 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Order;
+import com.commissionw.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Holds one-of-a-kind products for an order between checkout and payment.
+ *
+ * <p>Each product is claimed with its own conditional update
+ * ({@code status: available -> pending}), so two buyers racing for the same
+ * painting are decided by Mongo's single-document atomicity: exactly one
+ * update matches. There is no lock and no multi-document transaction; if
+ * any product of an order cannot be claimed, the ones already claimed are
+ * handed back before the order fails.
+ *
+ * <p>Only orders paid through an online gateway ({@code expiringPaymentMethods})
+ * hold their products for a limited time, {@code reservationTtlMs}; a
+ * scheduled sweep releases expired claims and cancels their unpaid orders.
+ * Cash-on-delivery and bank-transfer orders are confirmed by an admin, which
+ * can take a day or more, so their claims never expire: they last until the
+ * order is confirmed (sold) or cancelled (released).
+ */
+@Service
+public class ProductReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductReservationService.class);
+
+    public static final String AVAILABLE = "available";
+    public static final String PENDING = "pending";
+    public static final String SOLD = "sold";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Value("${commissionw.app.orders.reservationTtlMs:900000}")
+    private long reservationTtlMs;
+
+    @Value("${commissionw.app.orders.expiringPaymentMethods:vnpay,momo}")
+    private Set<String> expiringPaymentMethods;
+
+    /**
+     * Moves every product to pending for the order, or none of them: throws
+     * 409 naming the first product that is no longer available. The claim
+     * expires only for online payment methods.
+     */
+    public void reserve(String orderId, String paymentMethod, Collection<String> productIds) {
+        LocalDateTime until = holdExpires(paymentMethod)
+                ? LocalDateTime.now().plusNanos(reservationTtlMs * 1_000_000)
+                : null;
+        List<String> reserved = new ArrayList<>();
+        // Sorted and de-duplicated: an order can hold a unique piece only once
+        for (String productId : new TreeSet<>(productIds)) {
+            Query query = new Query(Criteria.where("id").is(productId).and("status").is(AVAILABLE));
+            Update update = new Update()
+                    .set("status", PENDING)
+                    .set("reservedBy", orderId)
+                    .inc("version", 1);
+            if (until != null) {
+                update.set("reservedUntil", until);
+            } else {
+                update.unset("reservedUntil");
+            }
+            if (mongoTemplate.updateFirst(query, update, Product.class).getModifiedCount() == 0) {
+                releaseProducts(orderId, reserved);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Product is no longer available: " + productId);
+            }
+            reserved.add(productId);
+        }
+        reserved.forEach(productService::refreshFromStore);
+    }
+
+    /**
+     * Returns the order's pending products to available, e.g. on cancel.
+     */
+    public void release(String orderId) {
+        releaseProducts(orderId, reservedProductIds(orderId));
+    }
+
+    /**
+     * Marks the order's reserved products as sold once it is paid or
+     * confirmed; they no longer expire.
+     */
+    public void finalizeSale(String orderId) {
+        List<String> productIds = reservedProductIds(orderId);
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Query query = new Query(Criteria.where("id").in(productIds).and("reservedBy").is(orderId)
+                .and("status").is(PENDING));
+        Update update = new Update().set("status", SOLD).unset("reservedUntil").inc("version", 1);
+        mongoTemplate.updateMulti(query, update, Product.class);
+        productIds.forEach(productService::refreshFromStore);
+    }
+
+    // Expired claims: cancel the order if it is still unpaid, then free its products
+    @Scheduled(fixedDelayString = "${commissionw.app.orders.reservationSweepMs:60000}")
+    public void releaseExpired() {
+        Query expired = new Query(Criteria.where("status").is(PENDING).and("reservedUntil").lt(LocalDateTime.now()));
+        expired.fields().include("reservedBy");
+
+        TreeSet<String> orderIds = new TreeSet<>();
+        for (Product product : mongoTemplate.find(expired, Product.class)) {
+            if (product.getReservedBy() != null) {
+                orderIds.add(product.getReservedBy());
+            }
+        }
+
+        for (String orderId : orderIds) {
+            Query method = new Query(Criteria.where("id").is(orderId));
+            method.fields().include("paymentMethod");
+            Order placed = mongoTemplate.findOne(method, Order.class);
+            if (placed != null && !holdExpires(placed.getPaymentMethod())) {
+                // Claimed with a deadline before offline orders stopped expiring: keep the hold
+                mongoTemplate.updateMulti(new Query(Criteria.where("reservedBy").is(orderId).and("status").is(PENDING)),
+                        new Update().unset("reservedUntil"), Product.class);
+                continue;
+            }
+
+            Query unpaid = new Query(Criteria.where("id").is(orderId).and("status").is("pending")
+                    .and("paymentStatus").ne("paid"));
+            LocalDateTime now = LocalDateTime.now();
+            Update cancel = new Update()
+                    .set("status", "cancelled")
+                    .set("updatedAt", now)
+                    .inc("version", 1);
+            Order previous = mongoTemplate.findAndModify(unpaid, cancel, Order.class);
+            boolean cancelled = previous != null;
+            if (cancelled) {
+                String previousStatus = previous.getStatus();
+                previous.setStatus("cancelled");
+                previous.setUpdatedAt(now);
+                salesRollupService.recordTransition(previous, previousStatus, previous.getPaymentStatus());
+            }
+
+            Query current = new Query(Criteria.where("id").is(orderId));
+            current.fields().include("status");
+            Order order = cancelled ? null : mongoTemplate.findOne(current, Order.class);
+            if (cancelled || order == null || "cancelled".equals(order.getStatus())) {
+                release(orderId);
+                logger.info("Reservation for order {} expired, products released", orderId);
+            } else {
+                // Paid or confirmed after the claim expired: the sale stands
+                finalizeSale(orderId);
+            }
+        }
+    }
+
+    private boolean holdExpires(String paymentMethod) {
+        return paymentMethod != null && expiringPaymentMethods.contains(paymentMethod.toLowerCase(Locale.ROOT));
+    }
+
+    private void releaseProducts(String orderId, List<String> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        // Guarded by reservedBy so a product already claimed by someone else is left alone
+        Query query = new Query(Criteria.where("id").in(productIds).and("reservedBy").is(orderId)
+                .and("status").is(PENDING));
+        Update update = new Update()
+                .set("status", AVAILABLE)
+                .unset("reservedBy")
+                .unset("reservedUntil")
+                .inc("version", 1);
+        mongoTemplate.updateMulti(query, update, Product.class);
+        productIds.forEach(productService::refreshFromStore);
+    }
+
+    private List<String> reservedProductIds(String orderId) {
+        Query query = new Query(Criteria.where("reservedBy").is(orderId).and("status").is(PENDING));
+        query.fields().include("id");
+        return mongoTemplate.find(query, Product.class).stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,186 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import com.commissionw.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product title, artist, category and
+ * description. Lookups touch only the postings of the query terms, so search
+ * cost does not grow with the size of the catalog.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float ARTIST_WEIGHT = 2.5f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    // A partially typed last word still matches, but ranks below a full word
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // term -> (product id -> weight); sorted so prefixes resolve to a sub-map
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final Map<String, Product> documents = new HashMap<>();
+    private final Map<String, Map<String, Float>> termsByProduct = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            termsByProduct.clear();
+            products.forEach(this::indexLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products", products.size());
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            indexLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the products matching every query term, best match first.
+     */
+    public List<Product> search(String query) {
+        List<String> terms = TextFolding.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Float> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Map<String, Float> termScores = scoreTerm(terms.get(i), last);
+                scores = scores == null ? termScores : intersect(scores, termScores);
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<String, Float>comparingByValue().reversed()
+                    .thenComparing(entry -> titleOf(entry.getKey()), Comparator.nullsLast(Comparator.naturalOrder())));
+
+            List<Product> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<String, Float> entry : ranked) {
+                results.add(documents.get(entry.getKey()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Float> scoreTerm(String term, boolean allowPrefix) {
+        Map<String, Float> scores = new HashMap<>();
+        Map<String, Float> exact = postings.get(term);
+        if (exact != null) {
+            scores.putAll(exact);
+        }
+
+        if (allowPrefix && term.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Map<String, Float>> entry : postings
+                    .subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                entry.getValue().forEach((id, weight) -> scores.merge(id, weight * PREFIX_FACTOR, Math::max));
+            }
+        }
+        return scores;
+    }
+
+    private static Map<String, Float> intersect(Map<String, Float> left, Map<String, Float> right) {
+        Map<String, Float> result = new HashMap<>();
+        left.forEach((id, score) -> {
+            Float other = right.get(id);
+            if (other != null) {
+                result.put(id, score + other);
+            }
+        });
+        return result;
+    }
+
+    private String titleOf(String productId) {
+        Product product = documents.get(productId);
+        return product != null ? TextFolding.fold(product.getTitle()) : null;
+    }
+
+    private void indexLocked(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, product.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, product.getArtist(), ARTIST_WEIGHT);
+        addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>())
+                .put(product.getId(), weight));
+        termsByProduct.put(product.getId(), terms);
+        documents.put(product.getId(), product);
+    }
+
+    private void removeLocked(String productId) {
+        Map<String, Float> terms = termsByProduct.remove(productId);
+        documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<String, Float> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        for (String token : TextFolding.tokenize(text)) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+}
@@ -1,32 +1,104 @@
 package com.commissionw.service;
 
 import com.commissionw.model.Product;
+import com.commissionw.payload.request.ProductFacetQuery;
+import com.commissionw.payload.response.CursorPage;
+import com.commissionw.payload.response.ProductFacets;
+import com.commissionw.payload.response.ProductSummary;
+import com.commissionw.repository.KeysetCursor;
 import com.commissionw.repository.ProductRepository;
+import com.commissionw.repository.ProductSort;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ProductService {
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return catalogCache.getAll(productRepository::findAll);
     }
 
     public Optional<Product> getProductById(String id) {
-        return productRepository.findById(id);
+        return catalogCache.getProduct(id, () -> productRepository.findById(id));
     }
 
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        // A client-supplied version would turn the insert into an update
+        product.setVersion(null);
+        attachImageDerivatives(product);
+        Product saved = productRepository.save(product);
+        afterWrite(saved.getId(), null, saved);
+        return saved;
+    }
+
+    /**
+     * Inserts a batch of new products with one unordered bulk write. The
+     * result has one entry per product: null if it was stored, otherwise
+     * the reason it was not.
+     */
+    public List<String> insertProducts(List<Product> products) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (Product product : products) {
+            product.setId(new ObjectId().toHexString());
+            // Bulk inserts do not initialise @Version themselves
+            product.setVersion(0L);
+            attachImageDerivatives(product);
+        }
+        bulk.insert(products);
+
+        String[] errors = new String[products.size()];
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> errors[error.getIndex()] = error.getMessage());
+        }
+
+        for (int i = 0; i < products.size(); i++) {
+            if (errors[i] == null) {
+                afterWrite(products.get(i).getId(), null, products.get(i));
+            }
+        }
+        return Arrays.asList(errors);
     }
 
     public Product updateProduct(String id, Product productDetails) {
-        Product product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        String oldCategory = product.getCategory();
 
         product.setTitle(productDetails.getTitle());
         product.setArtist(productDetails.getArtist());
@@ -35,24 +107,122 @@ public class ProductService {
         product.setCategory(productDetails.getCategory());
         product.setImageUrl(productDetails.getImageUrl());
         product.setStatus(productDetails.getStatus());
+        attachImageDerivatives(product);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        afterWrite(id, oldCategory, saved);
+        return saved;
     }
 
     public void deleteProduct(String id) {
+        String oldCategory = productRepository.findById(id).map(Product::getCategory).orElse(null);
         productRepository.deleteById(id);
+        afterWrite(id, oldCategory, null);
     }
 
-    public List<Product> searchProducts(String keyword) {
-        // Simple search logic - can be enhanced to search both title and artist
-        List<Product> byTitle = productRepository.findByTitleContainingIgnoreCase(keyword);
-        if (byTitle.isEmpty()) {
-            return productRepository.findByArtistContainingIgnoreCase(keyword);
+    /**
+     * Re-reads a product changed outside this service (another node, or a
+     * direct update elsewhere) and brings the cache and indexes up to date.
+     */
+    public void refreshFromStore(String id) {
+        Optional<Product> current = productRepository.findById(id);
+        catalogCache.invalidateProductAndLists(id);
+        if (current.isPresent()) {
+            searchIndex.put(current.get());
+            suggestIndex.put(current.get());
+        } else {
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
         }
-        return byTitle;
+        // Last, so a new ETag is never paired with stale cached or indexed data
+        catalogVersion.bump();
+    }
+
+    public String getCatalogEtag(String view) {
+        return catalogVersion.etag(view);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return catalogCache.stats();
+    }
+
+    // Served from the in-memory index, ranked by relevance
+    public List<Product> searchProducts(String keyword) {
+        return searchIndex.search(keyword);
+    }
+
+    public List<Map<String, String>> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, limit);
     }
 
     public List<Product> getByCategory(String category) {
-        return productRepository.findByCategory(category);
+        return catalogCache.getCategory(category, () -> productRepository.findByCategory(category));
+    }
+
+    public CursorPage<ProductSummary> getProductPage(String category, String search, ProductSort sort,
+            String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetCursor after = cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor, sort.name());
+
+        List<String> ids = null;
+        if (search != null) {
+            ids = searchIndex.search(search).stream().map(Product::getId).toList();
+            if (ids.isEmpty()) {
+                return new CursorPage<>(List.of(), null);
+            }
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        List<Product> rows = productRepository.findPage(category, ids, sort, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Product last = rows.get(rows.size() - 1);
+            nextCursor = new KeysetCursor(sort.name(), sortValue(sort, last), last.getId()).encode();
+        }
+
+        return new CursorPage<>(rows.stream().map(ProductSummary::from).toList(), nextCursor);
+    }
+
+    public ProductFacets getFacetedProducts(ProductFacetQuery query, String search) {
+        query.setSize(Math.max(1, Math.min(query.getSize(), MAX_PAGE_SIZE)));
+        query.setPage(Math.max(0, query.getPage()));
+        if (search != null) {
+            query.setIds(searchIndex.search(search).stream().map(Product::getId).toList());
+        }
+        return productRepository.findFaceted(query);
+    }
+
+    // Derivatives still being generated are attached when the background job finishes
+    private void attachImageDerivatives(Product product) {
+        Optional<ImageDerivativeService.Derivatives> derivatives = imageDerivativeService.find(product.getImageUrl());
+        product.setImageVariants(derivatives.map(ImageDerivativeService.Derivatives::variants).orElse(null));
+        product.setImagePlaceholder(derivatives.map(ImageDerivativeService.Derivatives::placeholder).orElse(null));
+    }
+
+    // current is null when the product was deleted
+    private void afterWrite(String id, String oldCategory, Product current) {
+        catalogCache.invalidateProduct(id, oldCategory, current != null ? current.getCategory() : null);
+        if (current != null) {
+            searchIndex.put(current);
+            suggestIndex.put(current);
+        } else {
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
+        }
+        // Last, so a new ETag is never paired with stale cached or indexed data
+        catalogVersion.bump();
+    }
+
+    private static String sortValue(ProductSort sort, Product product) {
+        if (sort.getField() == null) {
+            return null;
+        }
+        Object value = "price".equals(sort.getField()) ? product.getPrice() : product.getTitle();
+        return value == null ? null : value.toString();
     }
 }
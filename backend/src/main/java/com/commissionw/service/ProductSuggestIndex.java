@@ -0,0 +1,186 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Product;
+import com.commissionw.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocomplete over product titles and artist names. Each distinct title or
+ * artist is one suggestion, weighted by how many available works back it, and
+ * is reachable from the start of any of its words ("kiet" finds "Tuan Kiet").
+ */
+@Component
+public class ProductSuggestIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final SuggestionTrie titles = new SuggestionTrie(MAX_SUGGESTIONS);
+    private final SuggestionTrie artists = new SuggestionTrie(MAX_SUGGESTIONS);
+
+    // folded text -> aggregate of every product contributing to it
+    private final Map<String, Aggregate> titleAggregates = new HashMap<>();
+    private final Map<String, Aggregate> artistAggregates = new HashMap<>();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            artists.clear();
+            titleAggregates.clear();
+            artistAggregates.clear();
+            contributions.clear();
+            products.forEach(this::addLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product suggest index built with {} titles and {} artists",
+                titleAggregates.size(), artistAggregates.size());
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Map<String, String>> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+
+        List<SuggestionTrie.Suggestion> merged = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            merged.addAll(titles.lookup(key, size));
+            merged.addAll(artists.lookup(key, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+        merged.sort(SuggestionTrie.RANKING);
+
+        List<Map<String, String>> results = new ArrayList<>(size);
+        for (SuggestionTrie.Suggestion suggestion : merged.subList(0, Math.min(size, merged.size()))) {
+            results.add(Map.of("text", suggestion.text(), "type", suggestion.type()));
+        }
+        return results;
+    }
+
+    private void addLocked(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        int weight = weightOf(product);
+        String titleKey = normalize(product.getTitle());
+        String artistKey = normalize(product.getArtist());
+        contributions.put(product.getId(), new Contribution(titleKey, artistKey, weight));
+
+        adjust(titles, titleAggregates, titleKey, product.getTitle(), "title", weight, 1);
+        adjust(artists, artistAggregates, artistKey, product.getArtist(), "artist", weight, 1);
+    }
+
+    private void removeLocked(String productId) {
+        Contribution old = contributions.remove(productId);
+        if (old == null) {
+            return;
+        }
+        adjust(titles, titleAggregates, old.titleKey(), null, "title", -old.weight(), -1);
+        adjust(artists, artistAggregates, old.artistKey(), null, "artist", -old.weight(), -1);
+    }
+
+    private static void adjust(SuggestionTrie trie, Map<String, Aggregate> aggregates, String key,
+            String display, String type, int weightDelta, int countDelta) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Aggregate aggregate = aggregates.computeIfAbsent(key, k -> new Aggregate(display));
+        aggregate.weight += weightDelta;
+        aggregate.count += countDelta;
+
+        if (aggregate.count <= 0) {
+            aggregates.remove(key);
+            for (String suffix : wordSuffixes(key)) {
+                trie.remove(suffix, key);
+            }
+            return;
+        }
+        SuggestionTrie.Suggestion suggestion = new SuggestionTrie.Suggestion(key, aggregate.display, type,
+                aggregate.weight);
+        for (String suffix : wordSuffixes(key)) {
+            trie.put(suffix, suggestion);
+        }
+    }
+
+    // Every key that starts at a word boundary: "tuan kiet" -> ["tuan kiet", "kiet"]
+    private static List<String> wordSuffixes(String key) {
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(key);
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            suffixes.add(key.substring(i + 1));
+        }
+        return suffixes;
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", TextFolding.tokenize(text));
+    }
+
+    // Works still for sale rank above reserved ones, which rank above sold ones
+    private static int weightOf(Product product) {
+        if (product.getStatus() == null) {
+            return 1;
+        }
+        return switch (product.getStatus().toLowerCase(Locale.ROOT)) {
+            case "available" -> 4;
+            case "pending" -> 2;
+            default -> 1;
+        };
+    }
+
+    private record Contribution(String titleKey, String artistKey, int weight) {
+    }
+
+    private static final class Aggregate {
+        final String display;
+        int weight;
+        int count;
+
+        Aggregate(String display) {
+            this.display = display;
+        }
+    }
+}
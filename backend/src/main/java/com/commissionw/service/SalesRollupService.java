@@ -0,0 +1,392 @@
+package com.commissionw.service;
+
+import com.commissionw.model.Order;
+import com.commissionw.model.Product;
+import com.commissionw.model.SalesRollup;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the sales_rollups collection in step with orders. Every change to
+ * an order is turned into the difference between what it contributed
+ * before and after, and that difference is applied with $inc upserts in one
+ * bulk write. {@link #rebuild()} recomputes everything from the orders when
+ * the totals need repairing.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final String COLLECTION = "sales_rollups";
+    private static final String REBUILD_COLLECTION = "sales_rollups_rebuild";
+    private static final String UNKNOWN = "Unknown";
+    // How far the rebuild mark lies before the rebuild starts. A write stamped
+    // before the mark but stored after the start would be missed by both the
+    // scan and the replay; this only has to outlast one write round trip.
+    private static final Duration MARK_LEAD = Duration.ofMinutes(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${commissionw.app.reports.rebuildThreads:4}")
+    private int rebuildThreads;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // Deltas take the read side; a rebuild takes the write side only to swap its result in
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Set while a rebuild runs
+    private volatile Replay replay;
+    private final ExecutorService rebuildRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sales-rollup-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // First start with rollups: build them from the existing orders
+    @EventListener(ApplicationReadyEvent.class)
+    void buildIfMissing() {
+        if (mongoTemplate.estimatedCount(SalesRollup.class) == 0 && mongoTemplate.estimatedCount(Order.class) > 0) {
+            startRebuild();
+        }
+    }
+
+    /**
+     * Adds a newly placed order to the rollups.
+     */
+    public void recordCreated(Order order) {
+        record(order, contribution(order, order.getStatus(), order.getPaymentStatus()), Map.of());
+    }
+
+    /**
+     * Moves the order's contribution from its previous statuses to its
+     * current ones, e.g. removing it on cancel or counting it as paid.
+     */
+    public void recordTransition(Order order, String previousStatus, String previousPaymentStatus) {
+        record(order, contribution(order, order.getStatus(), order.getPaymentStatus()),
+                contribution(order, previousStatus, previousPaymentStatus));
+    }
+
+    public List<SalesRollup> getDaily(LocalDate from, LocalDate to) {
+        // Day keys are ISO dates, so the id range is the date range
+        Query query = new Query(Criteria.where("id")
+                .gte(SalesRollup.idOf(SalesRollup.DAY, from.toString()))
+                .lte(SalesRollup.idOf(SalesRollup.DAY, to.toString())))
+                .with(Sort.by(Sort.Direction.ASC, "id"));
+        return mongoTemplate.find(query, SalesRollup.class);
+    }
+
+    public List<SalesRollup> getTop(String type, int limit) {
+        Query query = new Query(Criteria.where("type").is(type))
+                .with(Sort.by(Sort.Direction.DESC, "revenue"))
+                .limit(limit);
+        return mongoTemplate.find(query, SalesRollup.class);
+    }
+
+    /**
+     * Starts a rebuild in the background; false if one is already running.
+     */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildRunner.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Sales rollup rebuild failed: {}", e.getMessage(), e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Recomputes all rollups from the orders. The order history is split
+     * into monthly ranges that are summed in parallel, each streaming its
+     * orders from a cursor. The result is written to a staging collection
+     * and swapped in with a rename, so readers never see a partial rebuild.
+     *
+     * <p>Orders keep changing while the ranges are summed. The scan counts
+     * only orders last changed before a mark shortly before the rebuild
+     * started, as they were at that moment, and the deltas of later changes
+     * are replayed on top.
+     * Orders the scan found already changed are counted as they are at the
+     * swap instead, which happens with new deltas held back. Changes made
+     * by other instances during a rebuild are not seen.
+     */
+    public void rebuild() throws Exception {
+        // Stored dates keep milliseconds, so the mark must not fall inside one
+        LocalDateTime mark = LocalDateTime.now().minus(MARK_LEAD).truncatedTo(ChronoUnit.MILLIS);
+        Replay started = new Replay(mark, new ConcurrentHashMap<>());
+        replay = started;
+        try {
+            rebuildFrom(started);
+        } finally {
+            replay = null;
+        }
+    }
+
+    private void rebuildFrom(Replay started) throws Exception {
+        LocalDateTime mark = started.mark();
+        Optional<LocalDate> first = boundary(Sort.Direction.ASC);
+        Optional<LocalDate> last = boundary(Sort.Direction.DESC);
+        Map<String, SalesRollup> totals = new HashMap<>();
+        Set<String> changedDuringScan = ConcurrentHashMap.newKeySet();
+
+        if (first.isPresent() && last.isPresent()) {
+            ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads);
+            try {
+                List<Future<Map<String, SalesRollup>>> parts = new ArrayList<>();
+                for (LocalDate month = first.get().withDayOfMonth(1); !month.isAfter(last.get());
+                        month = month.plusMonths(1)) {
+                    LocalDateTime from = month.atStartOfDay();
+                    LocalDateTime to = month.plusMonths(1).atStartOfDay();
+                    parts.add(pool.submit(() -> sumRange(from, to, mark, changedDuringScan)));
+                }
+                for (Future<Map<String, SalesRollup>> part : parts) {
+                    part.get().values().forEach(rollup -> merge(totals, rollup, 1));
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            started.deltas().forEach((orderId, deltas) -> {
+                if (!changedDuringScan.contains(orderId)) {
+                    deltas.values().forEach(rollup -> merge(totals, rollup, 1));
+                }
+            });
+            if (!changedDuringScan.isEmpty()) {
+                Query changed = new Query(Criteria.where("id").in(changedDuringScan));
+                changed.fields().include("createdAt", "status", "paymentStatus", "totalAmount", "items");
+                mongoTemplate.find(changed, Order.class).forEach(order -> contribution(order, order.getStatus(),
+                        order.getPaymentStatus()).values().forEach(rollup -> merge(totals, rollup, 1)));
+            }
+            totals.values().removeIf(SalesRollupService::isEmpty);
+
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+            if (totals.isEmpty()) {
+                mongoTemplate.dropCollection(COLLECTION);
+            } else {
+                mongoTemplate.insert(totals.values(), REBUILD_COLLECTION);
+                mongoTemplate.getCollection(REBUILD_COLLECTION).renameCollection(
+                        new MongoNamespace(mongoTemplate.getDb().getName(), COLLECTION),
+                        new RenameCollectionOptions().dropTarget(true));
+            }
+            // The rename replaced the collection together with its indexes
+            mongoTemplate.indexOps(SalesRollup.class).ensureIndex(
+                    new Index().named("type_revenue").on("type", Sort.Direction.ASC).on("revenue", Sort.Direction.DESC));
+            replay = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        logger.info("Rebuilt {} sales rollups, {} orders changed during the rebuild", totals.size(),
+                changedDuringScan.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildRunner.shutdownNow();
+    }
+
+    // Cancelled orders are read too: one cancelled after the mark must be
+    // noticed as changed, or its replayed delta would be subtracted from nothing
+    private Map<String, SalesRollup> sumRange(LocalDateTime from, LocalDateTime to, LocalDateTime mark,
+            Set<String> changed) {
+        Query query = new Query(Criteria.where("createdAt").gte(from).lt(to));
+        query.fields().include("createdAt", "updatedAt", "status", "paymentStatus", "totalAmount", "items");
+        Map<String, SalesRollup> totals = new HashMap<>();
+        try (Stream<Order> orders = mongoTemplate.stream(query, Order.class)) {
+            orders.forEach(order -> {
+                LocalDateTime changedAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt();
+                if (!changedAt.isBefore(mark)) {
+                    changed.add(order.getId());
+                    return;
+                }
+                contribution(order, order.getStatus(), order.getPaymentStatus())
+                        .values().forEach(rollup -> merge(totals, rollup, 1));
+            });
+        }
+        return totals;
+    }
+
+    private Optional<LocalDate> boundary(Sort.Direction direction) {
+        Query query = new Query(Criteria.where("createdAt").ne(null))
+                .with(Sort.by(direction, "createdAt")).limit(1);
+        query.fields().include("createdAt");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Order.class))
+                .map(order -> order.getCreatedAt().toLocalDate());
+    }
+
+    // Applies (after - before) to the live rollups. During a rebuild it is
+    // also kept for the replay if the change is stamped at or after the
+    // mark; an older one is already in what the scan reads.
+    private void record(Order order, Map<String, SalesRollup> after, Map<String, SalesRollup> before) {
+        Map<String, SalesRollup> delta = new HashMap<>();
+        after.values().forEach(rollup -> merge(delta, rollup, 1));
+        before.values().forEach(rollup -> merge(delta, rollup, -1));
+
+        swapLock.readLock().lock();
+        try {
+            Replay running = replay;
+            LocalDateTime changedAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt();
+            if (running != null && order.getId() != null && changedAt != null && !changedAt.isBefore(running.mark())) {
+                running.deltas().compute(order.getId(), (id, deltas) -> {
+                    Map<String, SalesRollup> sum = deltas != null ? deltas : new HashMap<>();
+                    delta.values().forEach(rollup -> merge(sum, rollup, 1));
+                    return sum;
+                });
+            }
+            apply(delta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Writes the delta as $inc upserts, skipping buckets that did not change
+    private void apply(Map<String, SalesRollup> delta) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+        boolean any = false;
+        for (SalesRollup change : delta.values()) {
+            if (isEmpty(change)) {
+                continue;
+            }
+            bulk.upsert(new Query(Criteria.where("id").is(change.getId())), new Update()
+                    .setOnInsert("type", change.getType())
+                    .setOnInsert("key", change.getKey())
+                    .inc("orders", change.getOrders())
+                    .inc("units", change.getUnits())
+                    .inc("revenue", change.getRevenue())
+                    .inc("paidOrders", change.getPaidOrders())
+                    .inc("paidRevenue", change.getPaidRevenue()));
+            any = true;
+        }
+        if (any) {
+            bulk.execute();
+        }
+    }
+
+    // What one order adds to each bucket when it has the given statuses
+    private Map<String, SalesRollup> contribution(Order order, String status, String paymentStatus) {
+        Map<String, SalesRollup> buckets = new HashMap<>();
+        if (status == null || "cancelled".equals(status)) {
+            return buckets;
+        }
+        boolean paid = "paid".equals(paymentStatus);
+
+        // Per artist and category: the order counts once, its items' amounts add up
+        Map<String, SalesRollup> itemBuckets = new HashMap<>();
+        long units = 0;
+        double itemsTotal = 0;
+        for (Order.OrderItem item : order.getItems() != null ? order.getItems() : List.<Order.OrderItem>of()) {
+            long quantity = item.getQuantity() != null ? item.getQuantity() : 1;
+            double amount = (item.getPrice() != null ? item.getPrice() : 0) * quantity;
+            units += quantity;
+            itemsTotal += amount;
+            String[] labels = labelsOf(item);
+            addItem(itemBuckets, SalesRollup.ARTIST, labels[0], quantity, amount, paid);
+            addItem(itemBuckets, SalesRollup.CATEGORY, labels[1], quantity, amount, paid);
+        }
+        buckets.putAll(itemBuckets);
+
+        if (order.getCreatedAt() != null) {
+            double total = order.getTotalAmount() != null ? order.getTotalAmount() : itemsTotal;
+            String key = order.getCreatedAt().toLocalDate().toString();
+            buckets.put(SalesRollup.idOf(SalesRollup.DAY, key), new SalesRollup(
+                    SalesRollup.idOf(SalesRollup.DAY, key), SalesRollup.DAY, key,
+                    1, units, total, paid ? 1 : 0, paid ? total : 0));
+        }
+        return buckets;
+    }
+
+    private static void addItem(Map<String, SalesRollup> buckets, String type, String key, long units,
+            double amount, boolean paid) {
+        String id = SalesRollup.idOf(type, key);
+        SalesRollup rollup = buckets.computeIfAbsent(id,
+                ignored -> new SalesRollup(id, type, key, 1, 0, 0, paid ? 1 : 0, 0));
+        rollup.setUnits(rollup.getUnits() + units);
+        rollup.setRevenue(rollup.getRevenue() + amount);
+        if (paid) {
+            rollup.setPaidRevenue(rollup.getPaidRevenue() + amount);
+        }
+    }
+
+    // Orders placed before items carried artist and category fall back to the catalog
+    private String[] labelsOf(Order.OrderItem item) {
+        String artist = item.getArtist();
+        String category = item.getCategory();
+        if ((artist == null || category == null) && item.getProductId() != null) {
+            Optional<Product> product = productService.getProductById(item.getProductId());
+            if (artist == null) {
+                artist = product.map(Product::getArtist).orElse(null);
+            }
+            if (category == null) {
+                category = product.map(Product::getCategory).orElse(null);
+            }
+        }
+        return new String[] { artist != null ? artist : UNKNOWN, category != null ? category : UNKNOWN };
+    }
+
+    // Rebuild start and the summed deltas of every order changed since, by order id
+    private record Replay(LocalDateTime mark, Map<String, Map<String, SalesRollup>> deltas) {
+    }
+
+    private static boolean isEmpty(SalesRollup rollup) {
+        return rollup.getOrders() == 0 && rollup.getUnits() == 0 && rollup.getRevenue() == 0
+                && rollup.getPaidOrders() == 0 && rollup.getPaidRevenue() == 0;
+    }
+
+    private static void merge(Map<String, SalesRollup> totals, SalesRollup rollup, int sign) {
+        SalesRollup total = totals.computeIfAbsent(rollup.getId(),
+                id -> new SalesRollup(id, rollup.getType(), rollup.getKey(), 0, 0, 0, 0, 0));
+        total.setOrders(total.getOrders() + sign * rollup.getOrders());
+        total.setUnits(total.getUnits() + sign * rollup.getUnits());
+        total.setRevenue(total.getRevenue() + sign * rollup.getRevenue());
+        total.setPaidOrders(total.getPaidOrders() + sign * rollup.getPaidOrders());
+        total.setPaidRevenue(total.getPaidRevenue() + sign * rollup.getPaidRevenue());
+    }
+}
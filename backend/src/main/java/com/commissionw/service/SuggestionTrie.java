@@ -0,0 +1,193 @@
+package com.commissionw.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed (radix) prefix trie whose nodes cache the top-k suggestions of
+ * their subtree. A lookup walks at most the length of the prefix and returns
+ * the cached list, so it costs the same for ten products or ten thousand.
+ * Not thread-safe; callers guard it.
+ */
+class SuggestionTrie {
+
+    static final Comparator<Suggestion> RANKING = Comparator.comparingInt(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::text);
+
+    private final int k;
+    private final Node root = new Node("");
+
+    SuggestionTrie(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Registers {@code suggestion} under {@code key}. The suggestion id keeps
+     * one suggestion reachable through several keys from being listed twice,
+     * and lets a re-put replace it in place.
+     */
+    void put(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        String rest = key;
+
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                child = new Node(rest);
+                node.children.put(rest.charAt(0), child);
+                node = child;
+                path.add(node);
+                rest = "";
+                break;
+            }
+
+            int common = commonPrefix(child.label, rest);
+            if (common < child.label.length()) {
+                // Split the edge at the point where the keys diverge
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                node.children.put(middle.label.charAt(0), middle);
+                middle.top = child.top;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            rest = rest.substring(common);
+        }
+
+        if (node.terminal == null) {
+            node.terminal = new HashMap<>();
+        }
+        node.terminal.put(suggestion.id(), suggestion);
+        recompute(path);
+    }
+
+    void remove(String key, String id) {
+        List<Node> path = find(key);
+        if (path == null) {
+            return;
+        }
+        Node node = path.get(path.size() - 1);
+        if (node.terminal == null || node.terminal.remove(id) == null) {
+            return;
+        }
+        if (node.terminal.isEmpty()) {
+            node.terminal = null;
+        }
+
+        // Prune the emptied node and re-compress single-child chains
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            Node parent = path.get(i - 1);
+            if (current.terminal == null && current.children.isEmpty()) {
+                parent.children.remove(current.label.charAt(0));
+            } else if (current.terminal == null && current.children.size() == 1) {
+                Node only = current.children.values().iterator().next();
+                only.label = current.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+                path.set(i, only);
+            }
+        }
+        recompute(path);
+    }
+
+    List<Suggestion> lookup(String prefix, int limit) {
+        Node node = root;
+        String rest = prefix;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                return List.of();
+            }
+            if (child.label.startsWith(rest)) {
+                node = child;
+                break;
+            }
+            if (!rest.startsWith(child.label)) {
+                return List.of();
+            }
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        return node.top.size() <= limit ? node.top : node.top.subList(0, limit);
+    }
+
+    void clear() {
+        root.children.clear();
+        root.terminal = null;
+        root.top = List.of();
+    }
+
+    private List<Node> find(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        String rest = key;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null || !rest.startsWith(child.label)) {
+                return null;
+            }
+            rest = rest.substring(child.label.length());
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    // Rebuild the cached top-k bottom-up along the changed path only
+    private void recompute(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            Map<String, Suggestion> best = new LinkedHashMap<>();
+            List<Map.Entry<String, Suggestion>> candidates = new ArrayList<>();
+            if (node.terminal != null) {
+                candidates.addAll(node.terminal.entrySet());
+            }
+            for (Node child : node.children.values()) {
+                for (Suggestion suggestion : child.top) {
+                    candidates.add(Map.entry(suggestion.id(), suggestion));
+                }
+            }
+            candidates.sort(Map.Entry.comparingByValue(RANKING));
+            for (Map.Entry<String, Suggestion> candidate : candidates) {
+                if (best.size() == k) {
+                    break;
+                }
+                best.putIfAbsent(candidate.getKey(), candidate.getValue());
+            }
+            node.top = List.copyOf(best.values());
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    record Suggestion(String id, String text, String type, int weight) {
+    }
+
+    private static final class Node {
+        String label;
+        final Map<Character, Node> children = new TreeMap<>();
+        Map<String, Suggestion> terminal;
+        List<Suggestion> top = List.of();
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
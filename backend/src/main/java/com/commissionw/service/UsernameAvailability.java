@@ -0,0 +1,97 @@
+package com.commissionw.service;
+
+import com.commissionw.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers the signup form's "is this username free?" checks. Usernames are
+ * never released, so a name once seen taken stays taken: those answers are
+ * kept in a bounded LRU set and repeated checks for them (and signups that
+ * would only fail on the unique index) skip Mongo entirely. "Available"
+ * answers are never cached, since another signup can claim the name at any
+ * moment.
+ *
+ * <p>Checks and signups share one per-client budget per minute, so the
+ * public endpoint cannot be used to enumerate usernames or hammer Mongo.
+ * The client is the request's remote address; behind a trusted reverse
+ * proxy that is the X-Forwarded-For client, not the proxy, so visitors do
+ * not share one budget.
+ */
+@Component
+public class UsernameAvailability {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Boolean> taken;
+    private final int perClientPerMinute;
+    // Requests per client in the current minute; cleared when the minute changes
+    private final ConcurrentHashMap<String, AtomicInteger> window = new ConcurrentHashMap<>();
+    private volatile long windowMinute;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public UsernameAvailability(
+            @Value("${commissionw.app.auth.takenUsernameCacheSize:10000}") int maxEntries,
+            @Value("${commissionw.app.auth.checksPerClientPerMinute:30}") int perClientPerMinute) {
+        this.maxEntries = maxEntries;
+        this.perClientPerMinute = perClientPerMinute;
+        this.taken = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > UsernameAvailability.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Counts one check or signup against the client's budget; false once
+     * the budget for the current minute is spent.
+     */
+    public boolean tryAdmit(String client) {
+        long minute = System.currentTimeMillis() / 60_000;
+        if (minute != windowMinute) {
+            synchronized (window) {
+                if (minute != windowMinute) {
+                    window.clear();
+                    windowMinute = minute;
+                }
+            }
+        }
+        return window.computeIfAbsent(client, ignored -> new AtomicInteger()).incrementAndGet() <= perClientPerMinute;
+    }
+
+    // Until the budget is renewed
+    public long retryAfterSeconds() {
+        return 60 - (System.currentTimeMillis() / 1000) % 60;
+    }
+
+    public boolean isAvailable(String username) {
+        if (isKnownTaken(username)) {
+            return false;
+        }
+        if (userRepository.existsByUsername(username)) {
+            markTaken(username);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isKnownTaken(String username) {
+        synchronized (taken) {
+            return taken.get(username) != null;
+        }
+    }
+
+    public void markTaken(String username) {
+        synchronized (taken) {
+            taken.put(username, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.commissionw.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkImportServiceTest {
+    private static final int MAX = 1000;
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    @Test
+    void readsPlainFields() throws IOException {
+        BufferedReader in = reader("a,b,c\n1,2,3\n");
+        assertEquals(List.of("a", "b", "c"), BulkImportService.readCsvRecord(in, MAX));
+        assertEquals(List.of("1", "2", "3"), BulkImportService.readCsvRecord(in, MAX));
+        assertNull(BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void keepsCommasInsideQuotes() throws IOException {
+        BufferedReader in = reader("\"Lake, at dusk\",Mai Lan\n");
+        assertEquals(List.of("Lake, at dusk", "Mai Lan"), BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void unescapesDoubledQuotes() throws IOException {
+        BufferedReader in = reader("\"The \"\"Blue\"\" Hour\",x\n");
+        assertEquals(List.of("The \"Blue\" Hour", "x"), BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotes() throws IOException {
+        BufferedReader in = reader("\"line one\nline two\",next\nsecond,row\n");
+        assertEquals(List.of("line one\nline two", "next"), BulkImportService.readCsvRecord(in, MAX));
+        assertEquals(List.of("second", "row"), BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void acceptsCrlfLineEndings() throws IOException {
+        BufferedReader in = reader("a,b\r\n\"c\",d\r\n");
+        assertEquals(List.of("a", "b"), BulkImportService.readCsvRecord(in, MAX));
+        assertEquals(List.of("c", "d"), BulkImportService.readCsvRecord(in, MAX));
+        assertNull(BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void closesQuotedFieldAtEndOfInput() throws IOException {
+        BufferedReader in = reader("a,\"last\"");
+        assertEquals(List.of("a", "last"), BulkImportService.readCsvRecord(in, MAX));
+        assertNull(BulkImportService.readCsvRecord(in, MAX));
+    }
+
+    @Test
+    void skipsOverlongRecordAndResumesAtNextLine() throws IOException {
+        BufferedReader in = reader("\"unterminated " + "x".repeat(50) + "\nok,row\n");
+        assertThrows(IllegalArgumentException.class, () -> BulkImportService.readCsvRecord(in, 20));
+        assertEquals(List.of("ok", "row"), BulkImportService.readCsvRecord(in, 20));
+    }
+
+    @Test
+    void readLineStripsCrAndRejectsOverlongLines() throws IOException {
+        BufferedReader in = reader("{\"a\":1}\r\n" + "y".repeat(30) + "\n{}\n");
+        assertEquals("{\"a\":1}", BulkImportService.readLine(in, 20));
+        assertThrows(IllegalArgumentException.class, () -> BulkImportService.readLine(in, 20));
+        assertEquals("{}", BulkImportService.readLine(in, 20));
+        assertNull(BulkImportService.readLine(in, 20));
+    }
+
+    @Test
+    void dropsByteOrderMark() throws IOException {
+        byte[] csv = "\uFEFFtitle,price\n".getBytes(StandardCharsets.UTF_8);
+        BufferedReader in = BulkImportService.openReader(new ByteArrayInputStream(csv));
+        assertEquals(List.of("title", "price"), BulkImportService.readCsvRecord(in, MAX));
+    }
+}
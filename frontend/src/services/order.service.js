@@ -25,15 +25,24 @@ const OrderService = {
         return response.data;
     },
 
-    // Update order status (Admin)
-    updateOrderStatus: async (id, status) => {
-        const response = await api.put(`/orders/${id}/status`, { status });
+    // Update order status (Admin). Pass the order as last loaded: its version
+    // makes the server reject the change (409) if someone else changed it first.
+    updateOrderStatus: async (order, status) => {
+        const response = await api.put(`/orders/${order.id}/status`, {
+            status,
+            expectedStatus: order.status,
+            version: String(order.version)
+        });
         return response.data;
     },
 
-    // Update payment status (Admin)
-    updatePaymentStatus: async (id, paymentStatus) => {
-        const response = await api.put(`/orders/${id}/payment`, { paymentStatus });
+    // Update payment status (Admin), guarded the same way
+    updatePaymentStatus: async (order, paymentStatus) => {
+        const response = await api.put(`/orders/${order.id}/payment`, {
+            paymentStatus,
+            expectedPaymentStatus: order.paymentStatus,
+            version: String(order.version)
+        });
         return response.data;
     },
 